@@ -0,0 +1,598 @@
+package common;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * BinaryCodec encodes messages in a compact binary format
+ *
+ * header:  format version (byte), type (byte), request id (varint), from (varint), DV version (varint),
+ *          round (varint), fields present (byte, bit 0 DV, bit 1 routing table, bit 2 costs, bit 3 changes,
+ *          bit 4 batch, bit 5 vector, bit 6 counts)
+ * counts:  count (varint), values (varint)
+ * vector:  length (varint), fill value (varint), then the entries as a matrix row
+ * changes: count (varint), values (varint)
+ * batch:   count (varint), then each message: length (varint), encoded message
+ * costs:   nodes (varint), then each node: degree (varint),
+ *          degree pairs of (target - previous target, cost) (varint)
+ * matrix:  size (varint), fill value (varint), then each row:
+ *          (count << 1 | dense) (varint)
+ *          dense:  count values (varint)
+ *          sparse: count pairs of (column - previous column, value) (varint),
+ *                  all other entries are the fill value
+ *
+ * The fill value is the most frequent entry for DVs and vectors, usually infinity, and 0 for routing tables,
+ * so unreachable nodes cost nothing; a few entries above infinity do not turn the rows dense
+ */
+public class BinaryCodec implements MessageCodec {
+
+    /**
+     * the codec has no state
+     */
+    public static final BinaryCodec INSTANCE = new BinaryCodec();
+
+    /**
+     * version of the format
+     */
+    private static final byte FORMAT_VERSION = 8;
+
+    //fields present
+    private static final int HAS_DV = 1;
+    private static final int HAS_ROUTING_TABLE = 2;
+    private static final int HAS_COSTS = 4;
+    private static final int HAS_CHANGES = 8;
+    private static final int HAS_BATCH = 16;
+    private static final int HAS_VECTOR = 32;
+    private static final int HAS_COUNTS = 64;
+
+    /**
+     * largest number of nodes, each node listens on its own port
+     */
+    private static final int MAX_NODES = 65535 - Configuration.BASIC_PORT;
+
+    /**
+     * largest matrix size, the size * size entries are no more ints than the largest frame
+     * has bytes (64 MB), the entries of sparse rows take no bytes
+     */
+    private static final int MAX_MATRIX_SIZE = 8192;
+
+    @Override
+    public byte getId() {
+        return BINARY;
+    }
+
+    @Override
+    public byte[] encode(Message message) {
+        Writer out = new Writer();
+        encode(out, message);
+        return out.toByteArray();
+    }
+
+    /**
+     * encode message
+     * @param out output
+     * @param message message
+     */
+    private static void encode(Writer out, Message message) {
+
+        //header
+        out.writeByte(FORMAT_VERSION);
+        out.writeByte(message.type);
+        out.writeVarint(message.requestId);
+        out.writeVarint(message.from);
+        out.writeVarlong(message.version);
+        out.writeVarint(message.round);
+        out.writeByte((message.DV != null ? HAS_DV : 0)
+                | (message.routingTable != null ? HAS_ROUTING_TABLE : 0)
+                | (message.costs != null ? HAS_COSTS : 0)
+                | (message.changes != null ? HAS_CHANGES : 0)
+                | (message.batch != null ? HAS_BATCH : 0)
+                | (message.vector != null ? HAS_VECTOR : 0)
+                | (message.counts != null ? HAS_COUNTS : 0));
+
+        //matrices
+        if (message.DV != null){
+            writeMatrix(out, message.DV, fill(message.DV.values()));
+        }
+        if (message.vector != null){
+            writeVector(out, message.vector);
+        }
+        if (message.routingTable != null){
+            writeMatrix(out, message.routingTable, 0);
+        }
+        if (message.costs != null){
+            writeNetwork(out, message.costs);
+        }
+        if (message.changes != null){
+            out.writeVarint(message.changes.length);
+            for (int value : message.changes){
+                out.writeVarint(value);
+            }
+        }
+        if (message.counts != null){
+            out.writeVarint(message.counts.length);
+            for (long value : message.counts){
+                out.writeVarlong(value);
+            }
+        }
+        if (message.batch != null){
+            out.writeVarint(message.batch.length);
+            for (Message part : message.batch){
+                //length is written in front of the part when it is done
+                int start = out.mark();
+                encode(out, part);
+                out.prefixLength(start);
+            }
+        }
+    }
+
+    @Override
+    public Message decode(byte[] bytes, int length) throws IOException {
+        return decode(new Reader(bytes, 0, length));
+    }
+
+    /**
+     * decode message
+     * @param in input
+     * @return message
+     * @throws IOException
+     */
+    private static Message decode(Reader in) throws IOException {
+
+        //header
+        int version = in.readByte();
+        if (version != FORMAT_VERSION){
+            throw new IOException("Unknown format version " + version);
+        }
+
+        Message message = new Message();
+        message.type = in.readByte();
+        message.requestId = in.readVarint();
+        message.from = in.readVarint();
+        message.version = in.readVarlong();
+        message.round = in.readVarint();
+        int present = in.readByte();
+
+        //matrices
+        if ((present & HAS_DV) != 0){
+            message.DV = readMatrix(in);
+        }
+        if ((present & HAS_VECTOR) != 0){
+            message.vector = readVector(in);
+        }
+        if ((present & HAS_ROUTING_TABLE) != 0){
+            message.routingTable = readMatrix(in);
+        }
+        if ((present & HAS_COSTS) != 0){
+            message.costs = readNetwork(in);
+        }
+        if ((present & HAS_CHANGES) != 0){
+            message.changes = new int[readLength(in, in.remaining(), "number of changes")];
+            for (int k = 0; k < message.changes.length; k++){
+                message.changes[k] = in.readVarint();
+            }
+        }
+        if ((present & HAS_COUNTS) != 0){
+            message.counts = new long[readLength(in, in.remaining(), "number of counts")];
+            for (int k = 0; k < message.counts.length; k++){
+                message.counts[k] = in.readVarlong();
+            }
+        }
+        if ((present & HAS_BATCH) != 0){
+            message.batch = new Message[readLength(in, in.remaining(), "batch size")];
+            for (int k = 0; k < message.batch.length; k++){
+                message.batch[k] = decode(in.part(in.readVarint()));
+            }
+        }
+
+        return message;
+    }
+
+    /**
+     * write matrix
+     * @param out output
+     * @param matrix matrix
+     * @param fill value that is not written in sparse rows
+     */
+    private static void writeMatrix(Writer out, DistanceMatrix matrix, int fill){
+
+        int size = matrix.size();
+        int[] values = matrix.values();
+
+        out.writeVarint(size);
+        out.writeVarint(fill);
+
+        for (int offset = 0; offset < values.length; offset += size){
+            writeRow(out, values, offset, size, fill);
+        }
+    }
+    
+    /**
+     * write vector
+     * @param out output
+     * @param vector vector
+     */
+    private static void writeVector(Writer out, int[] vector){
+        
+        int fill = fill(vector);
+        
+        out.writeVarint(vector.length);
+        out.writeVarint(fill);
+        writeRow(out, vector, 0, vector.length, fill);
+    }
+    
+    /**
+     * fill value of sparse rows, the entry found in more than half of the entries if there is one
+     * (majority vote), else any entry
+     * @param values entries
+     * @return fill value, 0 if empty
+     */
+    private static int fill(int[] values){
+        
+        int candidate = 0;
+        int votes = 0;
+        for (int value : values){
+            if (votes == 0){
+                candidate = value;
+                votes = 1;
+            }else if (value == candidate){
+                votes++;
+            }else{
+                votes--;
+            }
+        }
+        return candidate;
+    }
+    
+    /**
+     * write row, dense or as pairs of the entries that are not the fill value
+     * @param out output
+     * @param values entries
+     * @param offset first entry of row
+     * @param size length of row
+     * @param fill value that is not written in sparse rows
+     */
+    private static void writeRow(Writer out, int[] values, int offset, int size, int fill){
+
+        int count = 0;
+        for (int k = offset; k < offset + size; k++){
+            if (values[k] != fill){
+                count++;
+            }
+        }
+
+        //a pair costs at least 2 bytes, a dense entry at least 1 byte
+        if (count * 2 > size){
+            out.writeVarint(size << 1 | 1);
+            for (int k = offset; k < offset + size; k++){
+                out.writeVarint(values[k]);
+            }
+        }else{
+            out.writeVarint(count << 1);
+            int previous = 0;
+            for (int j = 0; j < size; j++){
+                if (values[offset + j] != fill){
+                    out.writeVarint(j - previous);
+                    out.writeVarint(values[offset + j]);
+                    previous = j;
+                }
+            }
+        }
+    }
+
+    /**
+     * read a length from the wire and check it before anything is allocated
+     * @param in input
+     * @param max largest valid length
+     * @param name name of the length in the error message
+     * @return length
+     * @throws IOException if the length is negative or larger than max
+     */
+    private static int readLength(Reader in, int max, String name) throws IOException{
+        
+        int length = in.readVarint();
+        if (length < 0 || length > max){
+            throw new IOException("Invalid " + name + " " + length);
+        }
+        return length;
+    }
+
+    /**
+     * read matrix
+     * @param in input
+     * @return matrix
+     * @throws IOException
+     */
+    private static DistanceMatrix readMatrix(Reader in) throws IOException{
+
+        //each row has a header byte
+        int size = readLength(in, Math.min(MAX_MATRIX_SIZE, in.remaining()), "matrix size");
+        int fill = in.readVarint();
+
+        //all rows are in the frame before the entries are allocated
+        Reader rows = in.copy();
+        for (int row = 0; row < size; row++){
+            readRow(rows, null, 0, size, fill);
+        }
+
+        DistanceMatrix matrix = new DistanceMatrix(size);
+        int[] values = matrix.values();
+
+        for (int offset = 0; offset < values.length; offset += size){
+            readRow(in, values, offset, size, fill);
+        }
+        return matrix;
+    }
+    
+    /**
+     * read vector
+     * @param in input
+     * @return vector
+     * @throws IOException
+     */
+    private static int[] readVector(Reader in) throws IOException{
+        
+        int length = readLength(in, MAX_NODES, "vector length");
+        int fill = in.readVarint();
+        
+        int[] vector = new int[length];
+        readRow(in, vector, 0, length, fill);
+        return vector;
+    }
+    
+    /**
+     * read row
+     * @param in input
+     * @param values entries, null to check the row only
+     * @param offset first entry of row
+     * @param size length of row
+     * @param fill value of the entries that are not written in sparse rows
+     * @throws IOException
+     */
+    private static void readRow(Reader in, int[] values, int offset, int size, int fill) throws IOException{
+
+        int header = in.readVarint();
+        int count = header >>> 1;
+        if (count > size){
+            throw new IOException("Invalid row length " + count);
+        }
+
+        if ((header & 1) != 0){
+            for (int j = 0; j < count; j++){
+                int value = in.readVarint();
+                if (values != null){
+                    values[offset + j] = value;
+                }
+            }
+        }else{
+            if (fill != 0 && values != null){
+                Arrays.fill(values, offset, offset + size, fill);
+            }
+            int column = 0;
+            for (int k = 0; k < count; k++){
+                column += in.readVarint();
+                if (column < 0 || column >= size){
+                    throw new IOException("Invalid column " + column);
+                }
+                int value = in.readVarint();
+                if (values != null){
+                    values[offset + column] = value;
+                }
+            }
+        }
+    }
+    
+    /**
+     * write links of network
+     * @param out output
+     * @param network network
+     */
+    private static void writeNetwork(Writer out, SparseNetwork network){
+        
+        out.writeVarint(network.numNodes());
+        
+        for (int i = 0; i < network.numNodes(); i++){
+            out.writeVarint(network.degree(i));
+            int previous = 0;
+            for (int link = network.offset(i); link < network.offset(i + 1); link++){
+                out.writeVarint(network.target(link) - previous);
+                out.writeVarint(network.cost(link));
+                previous = network.target(link);
+            }
+        }
+    }
+    
+    /**
+     * read links of network
+     * @param in input
+     * @return network
+     * @throws IOException
+     */
+    private static SparseNetwork readNetwork(Reader in) throws IOException{
+        
+        //each node has a degree byte
+        int numNodes = readLength(in, Math.min(MAX_NODES, in.remaining()), "number of nodes");
+        
+        int[] offsets = new int[numNodes + 1];
+        int[] targets = new int[16];
+        int[] costs = new int[16];
+        int links = 0;
+        
+        for (int i = 0; i < numNodes; i++){
+            
+            int degree = in.readVarint();
+            if (degree < 0 || degree > numNodes){
+                throw new IOException("Invalid degree " + degree);
+            }
+            if (links + degree > targets.length){
+                targets = Arrays.copyOf(targets, Math.max(targets.length * 2, links + degree));
+                costs = Arrays.copyOf(costs, targets.length);
+            }
+            
+            int target = 0;
+            for (int k = 0; k < degree; k++){
+                int gap = in.readVarint();
+                target += gap;
+                if ((k > 0 && gap == 0) || gap < 0 || target >= numNodes){
+                    throw new IOException("Invalid link target " + target);
+                }
+                targets[links] = target;
+                costs[links] = in.readVarint();
+                links++;
+            }
+            offsets[i + 1] = links;
+        }
+        
+        return new SparseNetwork(numNodes, offsets, Arrays.copyOf(targets, links), Arrays.copyOf(costs, links));
+    }
+    
+    /**
+     * growable byte buffer
+     */
+    static class Writer {
+
+        private byte[] buffer = new byte[64];
+
+        private int size = 0;
+
+        void writeByte(int value){
+            ensure(1);
+            buffer[size++] = (byte)value;
+        }
+
+        /**
+         * unsigned LEB128, negative values take 5 bytes
+         */
+        void writeVarint(int value){
+            ensure(5);
+            while ((value & ~0x7F) != 0){
+                buffer[size++] = (byte)((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte)value;
+        }
+
+        void writeVarlong(long value){
+            ensure(10);
+            while ((value & ~0x7FL) != 0){
+                buffer[size++] = (byte)((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte)value;
+        }
+
+        /**
+         * position to insert a length at
+         */
+        int mark(){
+            return size;
+        }
+
+        /**
+         * insert the number of bytes written after the mark in front of them (varint)
+         */
+        void prefixLength(int mark){
+            int length = size - mark;
+            Writer prefix = new Writer();
+            prefix.writeVarint(length);
+            ensure(prefix.size);
+            System.arraycopy(buffer, mark, buffer, mark + prefix.size, length);
+            System.arraycopy(prefix.buffer, 0, buffer, mark, prefix.size);
+            size += prefix.size;
+        }
+
+        private void ensure(int bytes){
+            if (size + bytes > buffer.length){
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + bytes));
+            }
+        }
+
+        byte[] toByteArray(){
+            return Arrays.copyOf(buffer, size);
+        }
+    }
+
+    /**
+     * reader of byte array
+     */
+    static class Reader {
+
+        private final byte[] buffer;
+
+        private final int length;
+
+        private int position;
+
+        /**
+         * @param buffer bytes
+         * @param offset first byte
+         * @param length end of bytes
+         */
+        Reader(byte[] buffer, int offset, int length){
+            this.buffer = buffer;
+            this.position = offset;
+            this.length = length;
+        }
+
+        /**
+         * reader of the next bytes, skip them
+         * @param bytes number of bytes
+         * @return reader
+         * @throws IOException
+         */
+        Reader part(int bytes) throws IOException{
+            if (bytes < 0 || position + bytes > length){
+                throw new IOException("Unexpected end of message");
+            }
+            Reader part = new Reader(buffer, position, position + bytes);
+            position += bytes;
+            return part;
+        }
+
+        int readByte() throws IOException{
+            if (position >= length){
+                throw new IOException("Unexpected end of message");
+            }
+            return buffer[position++];
+        }
+
+        /**
+         * reader of the remaining bytes that does not move this one
+         * @return reader
+         */
+        Reader copy(){
+            return new Reader(buffer, position, length);
+        }
+
+        /**
+         * @return bytes left
+         */
+        int remaining(){
+            return length - position;
+        }
+
+        int readVarint() throws IOException{
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7){
+                int b = readByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0){
+                    return value;
+                }
+            }
+            throw new IOException("Malformed varint");
+        }
+
+        long readVarlong() throws IOException{
+            long value = 0;
+            for (int shift = 0; shift < 70; shift += 7){
+                int b = readByte();
+                value |= (long)(b & 0x7F) << shift;
+                if ((b & 0x80) == 0){
+                    return value;
+                }
+            }
+            throw new IOException("Malformed varint");
+        }
+    }
+}
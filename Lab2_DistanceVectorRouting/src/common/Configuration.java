@@ -16,13 +16,35 @@ public class Configuration {
     public static final String NODE_ADDRESS = "127.0.0.1";
         
     /**
-     * maximum of nodes
+     * smallest infinity in the simulation (RIP),
+     * networks with longer paths get a larger infinity when they are loaded
      */
-    public static final int MAX_NODES = 6;
+    public static final int MIN_INFINITY = 16;
     
     /**
-     * infinity in the simulation
+     * largest infinity, a link cost plus infinity must not overflow
      */
-    public static final int INFINITY = 16;
+    public static final int MAX_INFINITY = Integer.MAX_VALUE / 2;
+    
+    /**
+     * time a node waits for the DV of a neighbor (ms)
+     */
+    public static final long NEIGHBOR_TIMEOUT = 2000;
+    
+    /**
+     * time between two observations of the master when nodes push updates (ms)
+     */
+    public static final long OBSERVE_INTERVAL = 5;
+    
+    /**
+     * time between periodic DV advertisements over UDP (ms)
+     */
+    public static final long ADVERTISE_INTERVAL = 500;
+    
+    /**
+     * time between two updates of a node with destinations waiting for the neighbors
+     * (feasible successors) when nodes push updates (ms)
+     */
+    public static final long ACTIVE_INTERVAL = 20;
     
 }
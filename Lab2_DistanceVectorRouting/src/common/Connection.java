@@ -0,0 +1,162 @@
+package common;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.Socket;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Connection is a long-lived TCP connection to a node
+ * Several requests can share it at the same time,
+ * replies are matched to requests by the request id
+ * 
+ * The thread of the connection reads the replies
+ */
+public class Connection extends Thread {
+    
+    /**
+     * socket to node
+     */
+    private final Socket socket;
+    
+    /**
+     * framed messages to/from node
+     */
+    private final MessageChannel channel;
+    
+    /**
+     * codec of requests
+     */
+    private final MessageCodec codec;
+    
+    /**
+     * requests waiting for reply, by request id
+     */
+    private final Map<Integer, CompletableFuture<Message>> pending = new ConcurrentHashMap<>();
+    
+    /**
+     * next request id
+     */
+    private final AtomicInteger nextRequestId = new AtomicInteger();
+    
+    /**
+     * is closed
+     */
+    private volatile boolean closed = false;
+
+    /**
+     * constructor
+     * connect to node
+     * @param info node to connect to
+     * @param codec codec of requests
+     * @throws IOException 
+     */
+    public Connection(NodeInfo info, MessageCodec codec) throws IOException {
+        
+        socket = new Socket(info.getAddress(), info.getPort());
+        socket.setTcpNoDelay(true);
+        
+        this.codec = codec;
+        this.channel = new MessageChannel(socket);
+        
+        setDaemon(true);
+        start();
+    }
+    
+    /**
+     * send request and wait for the reply
+     * @param message request
+     * @return reply
+     * @throws IOException 
+     */
+    public Message request(Message message) throws IOException {
+        
+        try {
+            return requestAsync(message).get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException ex) {
+            throw ex.getCause() instanceof IOException ? (IOException)ex.getCause() : new IOException(ex.getCause());
+        }
+    }
+    
+    /**
+     * send request without waiting for the reply
+     * @param message request
+     * @return reply, completed when it arrives
+     */
+    public CompletableFuture<Message> requestAsync(Message message) {
+        
+        final int requestId = nextRequestId.incrementAndGet();
+        message.requestId = requestId;
+        
+        CompletableFuture<Message> reply = new CompletableFuture<>();
+        pending.put(requestId, reply);
+        reply.whenComplete((result, ex) -> pending.remove(requestId));
+        
+        try {
+            if (closed){
+                throw new IOException("Connection closed");
+            }
+            channel.write(message, codec);
+        } catch (IOException ex) {
+            close();
+            reply.completeExceptionally(ex);
+        }
+        
+        return reply;
+    }
+    
+    /**
+     * read replies and hand them to the waiting requests
+     */
+    public void run(){
+        
+        try {
+            while (true){
+                
+                Message reply = channel.read();
+                
+                CompletableFuture<Message> request = pending.get(reply.requestId);
+                if (request != null){
+                    request.complete(reply);
+                }
+            }
+        } catch (Exception ex) {
+            
+            close();
+            
+            //fail all waiting requests
+            for (CompletableFuture<Message> request : pending.values()){
+                request.completeExceptionally(ex);
+            }
+        }
+    }
+    
+    /**
+     * is closed
+     * @return true/false
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+    
+    /**
+     * close connection
+     */
+    public void close(){
+        
+        closed = true;
+        
+        try {
+            socket.close();
+        } catch (IOException ex) {
+            //ignore
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package common;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * DistanceMatrix is a square matrix of costs (DV, routing table, network)
+ * stored row by row in one int array, so a row is a contiguous range
+ * and copies, fills and compares are bulk array operations
+ *
+ * Kernels can work on values() directly, entry (i, j) is at i * size() + j
+ */
+public class DistanceMatrix implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * rows and columns
+     */
+    private final int size;
+
+    /**
+     * entries, row by row
+     */
+    private final int[] values;
+
+    /**
+     * constructor, all entries 0
+     * @param size rows and columns
+     * @throws IllegalArgumentException if size is negative or size * size entries do not fit in an array
+     */
+    public DistanceMatrix(int size) {
+        this.size = size;
+        this.values = new int[entries(size)];
+    }
+
+    /**
+     * number of entries of a matrix
+     * @param size rows and columns
+     * @return size * size
+     * @throws IllegalArgumentException if size is negative or the entries do not fit in an array
+     */
+    private static int entries(int size){
+        if (size < 0){
+            throw new IllegalArgumentException("Invalid matrix size " + size);
+        }
+        try {
+            return Math.multiplyExact(size, size);
+        } catch (ArithmeticException ex) {
+            throw new IllegalArgumentException("Matrix size " + size + " is too large, " 
+                    + size + " * " + size + " entries do not fit in an array", ex);
+        }
+    }
+
+    /**
+     * constructor
+     * @param size rows and columns
+     * @param fill value of all entries
+     */
+    public DistanceMatrix(int size, int fill) {
+        this(size);
+        fill(fill);
+    }
+
+    /**
+     * copy of array matrix
+     * @param matrix rows of the same length as the number of rows
+     * @return matrix
+     */
+    public static DistanceMatrix of(int[][] matrix){
+        DistanceMatrix copy = new DistanceMatrix(matrix.length);
+        for (int i = 0; i < matrix.length; i++){
+            System.arraycopy(matrix[i], 0, copy.values, i * copy.size, copy.size);
+        }
+        return copy;
+    }
+
+    /**
+     * rows and columns
+     * @return size
+     */
+    public int size(){
+        return size;
+    }
+
+    /**
+     * entries, row by row, changes are seen by the matrix
+     * @return entries
+     */
+    public int[] values(){
+        return values;
+    }
+
+    /**
+     * index of first entry of row in values()
+     * @param i row
+     * @return index
+     */
+    public int offset(int i){
+        return i * size;
+    }
+
+    public int get(int i, int j){
+        return values[i * size + j];
+    }
+
+    public void set(int i, int j, int value){
+        values[i * size + j] = value;
+    }
+
+    /**
+     * view of row, changes are seen by the matrix
+     * @param i row
+     * @return row
+     */
+    public Row row(int i){
+        return new Row(i * size);
+    }
+
+    /**
+     * set all entries
+     * @param value value
+     */
+    public void fill(int value){
+        Arrays.fill(values, value);
+    }
+
+    /**
+     * set all entries of row
+     * @param i row
+     * @param value value
+     */
+    public void fillRow(int i, int value){
+        Arrays.fill(values, i * size, (i + 1) * size, value);
+    }
+
+    /**
+     * copy entries into a matrix of the same size
+     * @param target target
+     */
+    public void copyInto(DistanceMatrix target){
+        if (target.size != size){
+            throw new IllegalArgumentException("Size " + target.size + " instead of " + size);
+        }
+        System.arraycopy(values, 0, target.values, 0, values.length);
+    }
+
+    /**
+     * copy of matrix
+     * @return copy
+     */
+    public DistanceMatrix copy(){
+        DistanceMatrix copy = new DistanceMatrix(size);
+        copyInto(copy);
+        return copy;
+    }
+
+    /**
+     * copy into a larger or smaller matrix
+     * @param newSize rows and columns of the copy
+     * @param fill value of the new entries
+     * @return copy
+     */
+    public DistanceMatrix resize(int newSize, int fill){
+        DistanceMatrix copy = new DistanceMatrix(newSize, fill);
+        int columns = Math.min(size, newSize);
+        for (int i = 0; i < columns; i++){
+            System.arraycopy(values, i * size, copy.values, i * newSize, columns);
+        }
+        return copy;
+    }
+
+    /**
+     * largest entry
+     * @return largest entry, 0 if empty
+     */
+    public int max(){
+        int max = 0;
+        for (int value : values){
+            max = Math.max(max, value);
+        }
+        return max;
+    }
+
+    /**
+     * the same size and entries
+     * @param other matrix
+     * @return true/false
+     */
+    public boolean contentEquals(DistanceMatrix other){
+        return other != null && size == other.size && Arrays.equals(values, other.values);
+    }
+
+    /**
+     * rows equal
+     * @param i row
+     * @param other matrix of the same size
+     * @return true/false
+     */
+    public boolean rowEquals(int i, DistanceMatrix other){
+        for (int k = i * size, end = k + size; k < end; k++){
+            if (values[k] != other.values[k]){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean equals(Object other){
+        return other instanceof DistanceMatrix && contentEquals((DistanceMatrix)other);
+    }
+
+    @Override
+    public int hashCode(){
+        return Arrays.hashCode(values);
+    }
+
+    @Override
+    public String toString(){
+        StringBuilder result = new StringBuilder("[");
+        for (int i = 0; i < size; i++){
+            result.append(i == 0 ? "" : ", ").append(row(i));
+        }
+        return result.append("]").toString();
+    }
+
+    /**
+     * row of matrix
+     */
+    public class Row {
+
+        /**
+         * index of first entry
+         */
+        private final int offset;
+
+        private Row(int offset){
+            this.offset = offset;
+        }
+
+        public int get(int j){
+            return values[offset + j];
+        }
+
+        public void set(int j, int value){
+            values[offset + j] = value;
+        }
+
+        public int length(){
+            return size;
+        }
+
+        /**
+         * copy of row
+         * @return entries
+         */
+        public int[] toArray(){
+            return Arrays.copyOfRange(values, offset, offset + size);
+        }
+
+        @Override
+        public String toString(){
+            return Arrays.toString(toArray());
+        }
+    }
+}
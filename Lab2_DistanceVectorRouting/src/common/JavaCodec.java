@@ -0,0 +1,46 @@
+package common;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+/**
+ * JavaCodec encodes messages by Java serialization
+ */
+public class JavaCodec implements MessageCodec {
+    
+    /**
+     * the codec has no state
+     */
+    public static final JavaCodec INSTANCE = new JavaCodec();
+
+    @Override
+    public byte getId() {
+        return JAVA;
+    }
+
+    @Override
+    public byte[] encode(Message message) throws IOException {
+        
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(message);
+        out.close();
+        
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public Message decode(byte[] bytes, int length) throws IOException {
+        
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes, 0, length));
+        
+        try {
+            return (Message)in.readObject();
+        } catch (ClassNotFoundException ex) {
+            throw new IOException(ex);
+        }
+    }
+}
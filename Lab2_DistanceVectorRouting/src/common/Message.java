@@ -22,24 +22,90 @@ public class Message implements Serializable{
     //request to change cost, recalculate the DV....
     public static final int REQUEST_CHANGE_COST = 5;
     
+    //request the DV entries changed since a version
+    public static final int REQUEST_DV_CHANGES = 6;
+    
+    //DV pushed by a neighbor (triggered update)
+    public static final int ADVERTISE_DV = 7;
+    
+    //request to push the DV to neighbors
+    public static final int REQUEST_ADVERTISE = 8;
+    
+    //requests in batch, executed in order with one reply
+    public static final int REQUEST_BATCH = 9;
+    
+    //request the advertisement counts of a push node, termination detection
+    public static final int REQUEST_STATUS = 10;
+    
+    //request to change the cost of own links, sent to the two ends of a link only
+    public static final int REQUEST_CHANGE_LINK = 11;
+    
     /**
      * type of request
      */
     public int type;
     
+    /**
+     * request id, the reply carries the id of its request
+     * so several requests can share one connection
+     */
+    public int requestId;
+    
+    /**
+     * number of the node that sent the message, 0 for master
+     */
+    public int from;
+    
      /**
      * Distance Vector table
      */
-    public int[][] DV;
+    public DistanceMatrix DV;
+    
+    /**
+     * own distance vector of a lean node, its row of the DV table
+     */
+    public int[] vector;
     
     /**
      * routing table
      */
-    public int[][] routingTable;
+    public DistanceMatrix routingTable;
     
      /**
-     * costs
+     * links of network
+     */
+    public SparseNetwork costs;
+    
+    /**
+     * DV version
+     * request: version already known, reply: current version
+     */
+    public long version;
+    
+    /**
+     * DV entries changed since the version of the request,
+     * (row, column, cost) triples, empty if not modified;
+     * changed links of REQUEST_CHANGE_LINK, (from, to, cost) triples
+     */
+    public int[] changes;
+    
+    /**
+     * step of the simulation, 0 if none
+     * a node that already updated its DV in this step answers
+     * the DV requests of the step with the DV of the previous step
+     */
+    public int round;
+    
+    /**
+     * request: requests of a batch, reply: their replies in the same order
+     */
+    public Message[] batch;
+    
+    /**
+     * reply of REQUEST_STATUS: advertisements sent, advertisements received,
+     * updates or pushes queued or running and 1 if a destination is active;
+     * reply of REQUEST_UPDATE_DV: 1 if a destination is active, null if none
      */
-    public int[][] costs;
+    public long[] counts;
     
 }
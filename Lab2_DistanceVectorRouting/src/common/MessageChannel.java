@@ -0,0 +1,115 @@
+package common;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+
+/**
+ * MessageChannel sends/receives framed messages on a TCP socket
+ * 
+ * frame: codec id (byte), length (int), encoded message
+ */
+public class MessageChannel {
+    
+    /**
+     * largest frame accepted
+     */
+    private static final int MAX_FRAME = 64 * 1024 * 1024;
+    
+    /**
+     * socket
+     */
+    private final Socket socket;
+    
+    /**
+     * output
+     */
+    private final DataOutputStream out;
+    
+    /**
+     * input
+     */
+    private final DataInputStream in;
+    
+    /**
+     * buffer for incoming frames
+     */
+    private byte[] buffer = new byte[1024];
+    
+    /**
+     * codec of the last frame read
+     */
+    private MessageCodec lastCodec;
+
+    /**
+     * constructor
+     * @param socket connected socket
+     * @throws IOException 
+     */
+    public MessageChannel(Socket socket) throws IOException {
+        this.socket = socket;
+        this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+    }
+    
+    /**
+     * write message
+     * @param message message
+     * @param codec codec to encode with
+     * @throws IOException 
+     */
+    public void write(Message message, MessageCodec codec) throws IOException {
+        
+        byte[] bytes = codec.encode(message);
+        
+        synchronized (out){
+            out.writeByte(codec.getId());
+            out.writeInt(bytes.length);
+            out.write(bytes);
+            out.flush();
+        }
+    }
+    
+    /**
+     * read message, the codec is given by the frame
+     * @return message
+     * @throws IOException, EOFException at end of stream
+     */
+    public Message read() throws IOException {
+        
+        lastCodec = MessageCodec.forId(in.readUnsignedByte());
+        
+        int length = in.readInt();
+        if (length < 0 || length > MAX_FRAME){
+            throw new IOException("Invalid frame length " + length);
+        }
+        if (length > buffer.length){
+            buffer = new byte[Math.max(length, buffer.length * 2)];
+        }
+        in.readFully(buffer, 0, length);
+        
+        return lastCodec.decode(buffer, length);
+    }
+    
+    /**
+     * get codec of the last frame read
+     * @return codec
+     */
+    public MessageCodec getLastCodec() {
+        return lastCodec;
+    }
+    
+    /**
+     * close socket
+     */
+    public void close(){
+        try {
+            socket.close();
+        } catch (IOException ex) {
+            //ignore
+        }
+    }
+}
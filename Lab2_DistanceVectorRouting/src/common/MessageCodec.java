@@ -0,0 +1,71 @@
+package common;
+
+import java.io.IOException;
+
+/**
+ * MessageCodec converts a message to bytes and back
+ * Each codec has an id which is sent in front of every frame,
+ * so a node can read any codec and reply with the codec of the request
+ */
+public interface MessageCodec {
+    
+    /**
+     * id of Java serialization codec
+     */
+    byte JAVA = 1;
+    
+    /**
+     * id of binary codec
+     */
+    byte BINARY = 2;
+    
+    /**
+     * get id of codec
+     * @return id
+     */
+    byte getId();
+    
+    /**
+     * encode message
+     * @param message message
+     * @return bytes
+     * @throws IOException 
+     */
+    byte[] encode(Message message) throws IOException;
+    
+    /**
+     * decode message
+     * @param bytes bytes
+     * @param length number of bytes to use
+     * @return message
+     * @throws IOException 
+     */
+    Message decode(byte[] bytes, int length) throws IOException;
+    
+    /**
+     * get codec by id
+     * @param id id of codec
+     * @return codec
+     * @throws IOException if id is unknown
+     */
+    static MessageCodec forId(int id) throws IOException {
+        if (id == JAVA){
+            return JavaCodec.INSTANCE;
+        }else if (id == BINARY){
+            return BinaryCodec.INSTANCE;
+        }
+        throw new IOException("Unknown codec " + id);
+    }
+    
+    /**
+     * get codec by name
+     * @param name "java" or "binary"
+     * @return codec
+     */
+    static MessageCodec forName(String name){
+        if ("java".equalsIgnoreCase(name)){
+            return JavaCodec.INSTANCE;
+        }
+        return BinaryCodec.INSTANCE;
+    }
+}
@@ -0,0 +1,127 @@
+package common;
+
+/**
+ * min-plus relaxation of DV entries, DV[k] = min(DV[k], cost + source[k]),
+ * with the changed entries stamped with a version and their next hop recorded
+ *
+ * The blocked kernel first tests a block of entries for a shorter distance without branches,
+ * a loop the JIT compiles to SIMD instructions, and updates entry by entry only the blocks
+ * that have one. Near convergence almost no block does. The scalar kernel updates entry by entry.
+ * Both give the same entries, versions and hops.
+ */
+public final class MinPlus {
+
+    /**
+     * entry by entry
+     */
+    public static final MinPlus SCALAR = new MinPlus(1);
+
+    /**
+     * default block width
+     */
+    public static final int DEFAULT_WIDTH = 256;
+
+    /**
+     * entries tested together, 1 for the scalar kernel
+     */
+    private final int width;
+
+    private MinPlus(int width) {
+        this.width = width;
+    }
+
+    /**
+     * kernel with blocks of width entries
+     * @param width entries tested together, 1 for the scalar kernel
+     * @return kernel
+     */
+    public static MinPlus of(int width){
+        if (width < 1){
+            throw new IllegalArgumentException("Kernel width must be at least 1: " + width);
+        }
+        return width == 1 ? SCALAR : new MinPlus(width);
+    }
+
+    /**
+     * kernel of -Ddvr.kernelWidth, 1 for the scalar kernel
+     * @return kernel
+     */
+    public static MinPlus fromSystemProperties(){
+        return of(Integer.getInteger("dvr.kernelWidth", DEFAULT_WIDTH));
+    }
+
+    public int width(){
+        return width;
+    }
+
+    /**
+     * relax entries of DV with the entries of source plus cost
+     * @param DV entries to lower
+     * @param offset first entry of DV
+     * @param source entries of the other DV
+     * @param sourceOffset first entry of source
+     * @param cost added to source entries
+     * @param length number of entries
+     * @param versions versions of DV entries, a changed entry gets version
+     * @param version version of the change
+     * @param hops next hop of each entry from offset, null if not recorded
+     * @param hop next hop of the changed entries
+     * @return true if an entry changed
+     */
+    public boolean relax(int[] DV, int offset, int[] source, int sourceOffset, int cost, int length,
+            long[] versions, long version, int[] hops, int hop){
+
+        if (width == 1){
+            return relaxScalar(DV, offset, source, sourceOffset, cost, 0, length, versions, version, hops, hop);
+        }
+
+        boolean changed = false;
+        int k = 0;
+        for (; k + width <= length; k += width){
+
+            if (shorter(DV, offset + k, source, sourceOffset + k, cost, width) < 0){
+                changed |= relaxScalar(DV, offset, source, sourceOffset, cost, k, k + width, versions, version, hops, hop);
+            }
+        }
+        changed |= relaxScalar(DV, offset, source, sourceOffset, cost, k, length, versions, version, hops, hop);
+        return changed;
+    }
+
+    /**
+     * test entries for a shorter distance without branches
+     * @return negative if a distance is shorter, entries are at most infinity
+     */
+    private static int shorter(int[] DV, int offset, int[] source, int sourceOffset, int cost, int length){
+        int shorter = 0;
+        for (int k = 0; k < length; k++){
+            shorter |= cost + source[sourceOffset + k] - DV[offset + k];
+        }
+        return shorter;
+    }
+
+    /**
+     * relax entries from to to entry by entry
+     */
+    private static boolean relaxScalar(int[] DV, int offset, int[] source, int sourceOffset, int cost, int from, int to,
+            long[] versions, long version, int[] hops, int hop){
+
+        boolean changed = false;
+        for (int k = from; k < to; k++){
+            int distance = cost + source[sourceOffset + k];
+            if (distance < DV[offset + k]){
+                DV[offset + k] = distance;
+                versions[offset + k] = version;
+                if (hops != null){
+                    hops[k] = hop;
+                }
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    @Override
+    public String toString() {
+        return width == 1 ? "scalar" : "blocked x" + width;
+    }
+}
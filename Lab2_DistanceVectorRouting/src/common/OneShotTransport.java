@@ -0,0 +1,48 @@
+package common;
+
+import java.io.IOException;
+import java.net.Socket;
+
+/**
+ * OneShotTransport opens a new TCP socket for every request
+ * and closes it after the reply
+ */
+public class OneShotTransport implements Transport {
+    
+    /**
+     * codec of requests
+     */
+    private final MessageCodec codec;
+
+    /**
+     * constructor
+     * @param codec codec of requests
+     */
+    public OneShotTransport(MessageCodec codec) {
+        this.codec = codec;
+    }
+
+    @Override
+    public Message request(NodeInfo to, Message message) throws IOException {
+        
+        Socket clientSocket = new Socket(to.getAddress(), to.getPort());
+        
+        try {
+            MessageChannel channel = new MessageChannel(clientSocket);
+
+            //send request
+            channel.write(message, codec);
+
+            //read response
+            return channel.read();
+            
+        } finally {
+            clientSocket.close();
+        }
+    }
+
+    @Override
+    public void close() {
+        //nothing is kept open
+    }
+}
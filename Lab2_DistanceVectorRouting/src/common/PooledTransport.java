@@ -0,0 +1,109 @@
+package common;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * PooledTransport keeps one long-lived connection per node
+ * and shares it between all requests to that node
+ */
+public class PooledTransport implements Transport {
+    
+    /**
+     * connections by address:port
+     */
+    private final Map<String, Connection> connections = new ConcurrentHashMap<>();
+    
+    /**
+     * codec of requests
+     */
+    private final MessageCodec codec;
+
+    /**
+     * constructor
+     * @param codec codec of requests
+     */
+    public PooledTransport(MessageCodec codec) {
+        this.codec = codec;
+    }
+
+    @Override
+    public Message request(NodeInfo to, Message message) throws IOException {
+        
+        Connection connection = connect(to);
+        
+        try {
+            return connection.request(message);
+        } catch (IOException ex) {
+            //drop broken connection, next request reconnects
+            connections.remove(key(to), connection);
+            connection.close();
+            throw ex;
+        }
+    }
+    
+    @Override
+    public CompletableFuture<Message> requestAsync(NodeInfo to, Message message) {
+        
+        final Connection connection;
+        try {
+            connection = connect(to);
+        } catch (IOException ex) {
+            CompletableFuture<Message> failed = new CompletableFuture<>();
+            failed.completeExceptionally(ex);
+            return failed;
+        }
+        
+        CompletableFuture<Message> reply = connection.requestAsync(message);
+        reply.whenComplete((result, ex) -> {
+            if (ex != null){
+                //drop broken connection, next request reconnects
+                connections.remove(key(to), connection);
+                connection.close();
+            }
+        });
+        return reply;
+    }
+    
+    /**
+     * get the connection to node, connect if there is none
+     * @param to node
+     * @return connection
+     * @throws IOException 
+     */
+    private Connection connect(NodeInfo to) throws IOException {
+        
+        String key = key(to);
+        Connection connection = connections.get(key);
+        
+        if (connection == null || connection.isClosed()){
+            synchronized (this){
+                connection = connections.get(key);
+                if (connection == null || connection.isClosed()){
+                    connection = new Connection(to, codec);
+                    connections.put(key, connection);
+                }
+            }
+        }
+        return connection;
+    }
+    
+    /**
+     * key of node
+     * @param info node
+     * @return address:port
+     */
+    private static String key(NodeInfo info){
+        return info.getAddress() + ":" + info.getPort();
+    }
+
+    @Override
+    public void close() {
+        for (Connection connection : connections.values()){
+            connection.close();
+        }
+        connections.clear();
+    }
+}
@@ -0,0 +1,347 @@
+package common;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * SharedDVRegion holds the DV of every node in one block of memory,
+ * off-heap in this process or a memory-mapped file shared by processes on one host
+ * Nodes write their own slot, neighbors and the master read it without a request
+ *
+ * Each slot has two buffers, one for the DV of the current step and one for the previous step,
+ * so the neighbors that read in a step see the DV of the previous step (like Message.round).
+ * Every buffer is a seqlock: the sequence is odd while the node writes,
+ * a reader retries if the sequence was odd or changed while it read
+ *
+ * region: magic (int), slots (int), size (int), 0 (int), then the slots
+ * buffer: sequence (long), DV version (long), round (int), 0 (int), DV (size * size ints)
+ */
+public class SharedDVRegion {
+
+    /**
+     * marks an initialized region file
+     */
+    private static final int MAGIC = 0x44565231;
+
+    private static final int HEADER = 16;
+
+    //offsets in buffer
+    private static final int SEQUENCE = 0;
+    private static final int VERSION = 8;
+    private static final int ROUND = 16;
+    private static final int DATA = 24;
+
+    /**
+     * memory fences of sun.misc.Unsafe, found at run time
+     */
+    private static final MethodHandle LOAD_FENCE;
+    private static final MethodHandle STORE_FENCE;
+
+    static {
+        MethodHandle loadFence;
+        MethodHandle storeFence;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            Object unsafe = field.get(null);
+
+            MethodType type = MethodType.methodType(void.class);
+            loadFence = MethodHandles.lookup().findVirtual(unsafeClass, "loadFence", type).bindTo(unsafe);
+            storeFence = MethodHandles.lookup().findVirtual(unsafeClass, "storeFence", type).bindTo(unsafe);
+        } catch (Exception ex) {
+            //volatile access of a field orders less, but it is the best there is
+            Logger.getLogger(SharedDVRegion.class.getName()).log(Level.WARNING,
+                    "Memory fences are not available, using volatile access");
+            try {
+                loadFence = MethodHandles.lookup().findStatic(SharedDVRegion.class, "volatileFence",
+                        MethodType.methodType(void.class));
+            } catch (Exception e) {
+                throw new ExceptionInInitializerError(e);
+            }
+            storeFence = loadFence;
+        }
+        LOAD_FENCE = loadFence;
+        STORE_FENCE = storeFence;
+    }
+
+    private static volatile int fence;
+
+    private static void volatileFence(){
+        fence = fence + 1;
+    }
+
+    /**
+     * memory of region
+     */
+    private final ByteBuffer memory;
+
+    /**
+     * file of mapped region, null if off-heap
+     */
+    private final FileChannel file;
+
+    /**
+     * number of slots
+     */
+    private final int slots;
+
+    /**
+     * rows and columns of DVs
+     */
+    private final int size;
+
+    /**
+     * bytes of one buffer
+     */
+    private final int bufferBytes;
+
+    /**
+     * constructor
+     * @param memory memory of region
+     * @param file file of mapped region, null if off-heap
+     * @param slots number of slots
+     * @param size rows and columns of DVs
+     */
+    private SharedDVRegion(ByteBuffer memory, FileChannel file, int slots, int size){
+        this.memory = memory.order(ByteOrder.nativeOrder());
+        this.file = file;
+        this.slots = slots;
+        this.size = size;
+        this.bufferBytes = (int)bufferBytes(size);
+    }
+
+    /**
+     * create region off-heap, for nodes in this process
+     * @param slots number of slots (nodes)
+     * @param size rows and columns of DVs
+     * @return region
+     * @throws IllegalArgumentException if the region would be too large
+     */
+    public static SharedDVRegion allocate(int slots, int size){
+        SharedDVRegion region = new SharedDVRegion(ByteBuffer.allocateDirect(bytes(slots, size)), null, slots, size);
+        region.initialize();
+        return region;
+    }
+
+    /**
+     * map region file, for nodes in processes on one host
+     * @param path file
+     * @param slots number of slots (nodes)
+     * @param size rows and columns of DVs
+     * @param clear true: start a new simulation, false: join a region of the same shape
+     * @return region
+     * @throws IOException
+     * @throws IllegalArgumentException if the region would be too large
+     */
+    public static SharedDVRegion map(File path, int slots, int size, boolean clear) throws IOException {
+
+        int bytes = bytes(slots, size);
+        FileChannel file = FileChannel.open(path.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        SharedDVRegion region = new SharedDVRegion(file.map(FileChannel.MapMode.READ_WRITE, 0, bytes),
+                file, slots, size);
+
+        if (clear || region.memory.getInt(0) != MAGIC || region.memory.getInt(4) != slots || region.memory.getInt(8) != size){
+            region.initialize();
+        }
+        return region;
+    }
+
+    private static long bufferBytes(int size){
+        //keep the longs aligned
+        return (DATA + 4L * size * size + 7) & ~7L;
+    }
+
+    private static int bytes(int slots, int size){
+        long bytes = HEADER + 2L * slots * bufferBytes(size);
+        if (bytes > Integer.MAX_VALUE){
+            throw new IllegalArgumentException("Region too large: " + slots + " nodes");
+        }
+        return (int)bytes;
+    }
+
+    /**
+     * clear region and write header
+     */
+    private void initialize(){
+        for (int i = HEADER; i < memory.capacity(); i += 8){
+            memory.putLong(i, 0);
+        }
+        memory.putInt(4, slots);
+        memory.putInt(8, size);
+        memory.putInt(12, 0);
+        fence(STORE_FENCE);
+        memory.putInt(0, MAGIC);
+    }
+
+    /**
+     * offset of buffer
+     * @param slot slot
+     * @param buffer 0 or 1
+     * @return offset
+     */
+    private int offset(int slot, int buffer){
+        return HEADER + (2 * slot + buffer) * bufferBytes;
+    }
+
+    /**
+     * write DV of node, only the node writes its slot
+     * @param slot slot of node (node number - 1)
+     * @param round step of the update, 0 to replace the latest DV
+     * @param version DV version
+     * @param DV DV, at least size x size
+     */
+    public void write(int slot, int round, long version, DistanceMatrix DV){
+
+        int latest = latest(slot);
+        int buffer = latest;
+        if (round > 0 && memory.getInt(offset(slot, latest) + ROUND) != round){
+            //new step, keep the DV of the previous step
+            buffer = 1 - latest;
+        }else{
+            round = memory.getInt(offset(slot, latest) + ROUND);
+        }
+
+        int offset = offset(slot, buffer);
+        long sequence = memory.getLong(offset + SEQUENCE);
+
+        memory.putLong(offset + SEQUENCE, sequence + 1);
+        fence(STORE_FENCE);
+
+        memory.putLong(offset + VERSION, version);
+        memory.putInt(offset + ROUND, round);
+        IntBuffer data = data(offset);
+        for (int i = 0; i < size; i++){
+            data.put(DV.values(), DV.offset(i), size);
+        }
+
+        fence(STORE_FENCE);
+        memory.putLong(offset + SEQUENCE, sequence + 2);
+    }
+
+    /**
+     * read DV of node
+     * @param slot slot of node (node number - 1)
+     * @param round step of the reader, the DV of an earlier step is read; 0 for the latest DV
+     * @param DV DV is copied into it, not changed if the node has not written; at least size x size
+     * @return DV version, 0 if the node has not written
+     */
+    public long read(int slot, int round, DistanceMatrix DV){
+
+        while (true){
+
+            int buffer = choose(slot, round);
+            int offset = offset(slot, buffer);
+
+            long sequence = memory.getLong(offset + SEQUENCE);
+            if ((sequence & 1) != 0){
+                //node is writing
+                Thread.yield();
+                continue;
+            }
+            fence(LOAD_FENCE);
+
+            long version = memory.getLong(offset + VERSION);
+            int bufferRound = memory.getInt(offset + ROUND);
+            if (version == 0){
+                return 0;
+            }
+
+            IntBuffer data = data(offset);
+            for (int i = 0; i < size; i++){
+                data.get(DV.values(), DV.offset(i), size);
+            }
+
+            fence(LOAD_FENCE);
+            if (memory.getLong(offset + SEQUENCE) == sequence){
+                if (round > 0 && bufferRound >= round && choose(slot, round) != buffer){
+                    //the node started the step while the buffer was chosen
+                    continue;
+                }
+                return version;
+            }
+        }
+    }
+
+    /**
+     * DV entries of buffer, with own position
+     * @param offset offset of buffer
+     * @return entries
+     */
+    private IntBuffer data(int offset){
+        ByteBuffer data = memory.duplicate().order(ByteOrder.nativeOrder());
+        data.position(offset + DATA);
+        return data.slice().order(ByteOrder.nativeOrder()).asIntBuffer();
+    }
+
+    /**
+     * buffer of the latest DV
+     */
+    private int latest(int slot){
+        return choose(slot, 0);
+    }
+
+    /**
+     * choose buffer to read
+     * the buffer of a step is changed while it is chosen, so every field is read once
+     * @param slot slot
+     * @param round the DV of a step before round is chosen, 0 for the latest DV
+     * @return buffer
+     */
+    private int choose(int slot, int round){
+
+        int round0 = memory.getInt(offset(slot, 0) + ROUND);
+        int round1 = memory.getInt(offset(slot, 1) + ROUND);
+
+        if (round > 0 && (round0 >= round) != (round1 >= round)){
+            //only one is before round
+            return round0 < round ? 0 : 1;
+        }
+        if (round0 != round1){
+            return round1 > round0 ? 1 : 0;
+        }
+        return memory.getLong(offset(slot, 1) + VERSION) > memory.getLong(offset(slot, 0) + VERSION) ? 1 : 0;
+    }
+
+    private static void fence(MethodHandle fence){
+        try {
+            fence.invokeExact();
+        } catch (Throwable ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * get number of slots
+     * @return number of slots
+     */
+    public int getSlots() {
+        return slots;
+    }
+
+    /**
+     * close file of mapped region, the memory stays mapped until it is collected
+     */
+    public void close(){
+        if (file != null){
+            try {
+                file.close();
+            } catch (IOException ex) {
+                //ignore
+            }
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package common;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * ShortestPaths computes the distances between all nodes of a network without running the protocol,
+ * the converged DVs must hold the same own distances, so it verifies a simulation
+ * and gives the final distances of a network directly
+ *
+ * Blocked Floyd-Warshall: the distance matrix is split into tiles that fit in the cache.
+ * For each diagonal tile, the tile itself is relaxed, then the tiles of its row and column,
+ * then all other tiles, through the nodes of the diagonal tile. The tiles of the last two phases
+ * do not depend on each other, they run in parallel on a ForkJoinPool.
+ */
+public final class ShortestPaths {
+
+    /**
+     * default tile width, 64 x 64 entries are 16 KB
+     */
+    public static final int DEFAULT_TILE = 64;
+
+    /**
+     * nodes per tile side
+     */
+    private final int tile;
+
+    /**
+     * runs the tiles of a phase
+     */
+    private final ForkJoinPool pool;
+
+    private ShortestPaths(int tile, ForkJoinPool pool) {
+        this.tile = tile;
+        this.pool = pool;
+    }
+
+    /**
+     * blocked Floyd-Warshall
+     * @param tile nodes per tile side
+     * @param pool runs the tiles of a phase, null to run them on the calling thread
+     * @return shortest paths
+     */
+    public static ShortestPaths of(int tile, ForkJoinPool pool){
+        if (tile < 1){
+            throw new IllegalArgumentException("Tile must be at least 1: " + tile);
+        }
+        return new ShortestPaths(tile, pool);
+    }
+
+    /**
+     * blocked Floyd-Warshall with the default tile on the common pool
+     * @return shortest paths
+     */
+    public static ShortestPaths parallel(){
+        return of(DEFAULT_TILE, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * distances between all nodes
+     * @param numNodes number of nodes, links to other nodes are ignored
+     * @param network links of network
+     * @param infinity distance of unreachable nodes, paths are shorter
+     * @return distance from node i to node j in row i
+     */
+    public DistanceMatrix compute(int numNodes, SparseNetwork network, int infinity){
+
+        DistanceMatrix distances = links(numNodes, network, infinity);
+        int[] values = distances.values();
+        int tiles = (numNodes + tile - 1) / tile;
+
+        for (int k = 0; k < tiles; k++){
+
+            //the diagonal tile depends only on itself
+            relaxThrough(values, numNodes, k, k, k);
+
+            //its row and column
+            List<int[]> cross = new ArrayList<>();
+            for (int t = 0; t < tiles; t++){
+                if (t != k){
+                    cross.add(new int[]{k, t});
+                    cross.add(new int[]{t, k});
+                }
+            }
+            run(values, numNodes, k, cross, true);
+
+            //all other tiles, through the final row and column
+            List<int[]> rest = new ArrayList<>();
+            for (int i = 0; i < tiles; i++){
+                for (int j = 0; j < tiles; j++){
+                    if (i != k && j != k){
+                        rest.add(new int[]{i, j});
+                    }
+                }
+            }
+            run(values, numNodes, k, rest, false);
+        }
+        return distances;
+    }
+
+    /**
+     * relax tiles through the nodes of diagonal tile k, in parallel
+     * @param crossing true if the tiles are in the row or column of k
+     */
+    private void run(int[] values, int numNodes, int k, List<int[]> tiles, boolean crossing){
+
+        if (pool == null){
+            for (int[] t : tiles){
+                relax(values, numNodes, k, t, crossing);
+            }
+            return;
+        }
+        pool.invoke(new Tiles(values, numNodes, k, tiles, 0, tiles.size(), crossing));
+    }
+
+    private void relax(int[] values, int numNodes, int k, int[] t, boolean crossing){
+        if (crossing){
+            relaxThrough(values, numNodes, t[0], t[1], k);
+        }else{
+            relaxTile(values, numNodes, t[0], t[1], k);
+        }
+    }
+
+    /**
+     * tiles of a phase, split in halves
+     */
+    private class Tiles extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int[] values;
+
+        private final int numNodes;
+
+        private final int k;
+
+        private final List<int[]> tiles;
+
+        private final int from;
+
+        private final int to;
+
+        private final boolean crossing;
+
+        Tiles(int[] values, int numNodes, int k, List<int[]> tiles, int from, int to, boolean crossing) {
+            this.values = values;
+            this.numNodes = numNodes;
+            this.k = k;
+            this.tiles = tiles;
+            this.from = from;
+            this.to = to;
+            this.crossing = crossing;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1){
+                int middle = (from + to) >>> 1;
+                invokeAll(new Tiles(values, numNodes, k, tiles, from, middle, crossing),
+                        new Tiles(values, numNodes, k, tiles, middle, to, crossing));
+                return;
+            }
+            for (int t = from; t < to; t++){
+                relax(values, numNodes, k, tiles.get(t), crossing);
+            }
+        }
+    }
+
+    /**
+     * relax tile (i, j) through the nodes of tile k one after the other,
+     * for tiles that share a row or column with tile k, which change while they are read
+     */
+    private void relaxThrough(int[] values, int n, int ti, int tj, int tk){
+
+        int iEnd = Math.min(n, (ti + 1) * tile);
+        int jStart = tj * tile;
+        int jEnd = Math.min(n, jStart + tile);
+        int kEnd = Math.min(n, (tk + 1) * tile);
+
+        for (int k = tk * tile; k < kEnd; k++){
+            int kRow = k * n;
+            for (int i = ti * tile; i < iEnd; i++){
+                int iRow = i * n;
+                int ik = values[iRow + k];
+                for (int j = jStart; j < jEnd; j++){
+                    int distance = ik + values[kRow + j];
+                    if (distance < values[iRow + j]){
+                        values[iRow + j] = distance;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * relax tile (i, j) through the final row and column of tile k,
+     * rows of the tile in order, the inner loop over a contiguous row
+     */
+    private void relaxTile(int[] values, int n, int ti, int tj, int tk){
+
+        int iEnd = Math.min(n, (ti + 1) * tile);
+        int jStart = tj * tile;
+        int jEnd = Math.min(n, jStart + tile);
+        int kEnd = Math.min(n, (tk + 1) * tile);
+
+        for (int i = ti * tile; i < iEnd; i++){
+            int iRow = i * n;
+            for (int k = tk * tile; k < kEnd; k++){
+                int ik = values[iRow + k];
+                int kRow = k * n;
+                for (int j = jStart; j < jEnd; j++){
+                    values[iRow + j] = Math.min(values[iRow + j], ik + values[kRow + j]);
+                }
+            }
+        }
+    }
+
+    /**
+     * distances between all nodes, plain Floyd-Warshall, for comparison
+     * @param numNodes number of nodes
+     * @param network links of network
+     * @param infinity distance of unreachable nodes
+     * @return distance from node i to node j in row i
+     */
+    public static DistanceMatrix floydWarshall(int numNodes, SparseNetwork network, int infinity){
+
+        DistanceMatrix distances = links(numNodes, network, infinity);
+        for (int k = 0; k < numNodes; k++){
+            for (int i = 0; i < numNodes; i++){
+                for (int j = 0; j < numNodes; j++){
+                    int distance = distances.get(i, k) + distances.get(k, j);
+                    if (distance < distances.get(i, j)){
+                        distances.set(i, j, distance);
+                    }
+                }
+            }
+        }
+        return distances;
+    }
+
+    /**
+     * costs of the links, 0 to itself, infinity otherwise
+     */
+    private static DistanceMatrix links(int numNodes, SparseNetwork network, int infinity){
+
+        DistanceMatrix distances = Utility.createMatrix(numNodes, infinity);
+        for (int i = 0; i < numNodes; i++){
+            for (int link = network.offset(i); link < network.offset(i + 1); link++){
+                if (network.target(link) < numNodes && network.cost(link) > 0){
+                    distances.set(i, network.target(link), network.cost(link));
+                }
+            }
+            distances.set(i, i, 0);
+        }
+        return distances;
+    }
+
+    /**
+     * compare the own distances of the node DVs with the shortest paths
+     * @param DVs DV of each node, the own distances of node i in row i
+     * @param distances shortest paths
+     * @return number of own distances that differ, a missing DV differs in all
+     */
+    public static int verify(List<DistanceMatrix> DVs, DistanceMatrix distances){
+
+        int size = distances.size();
+        int wrong = 0;
+        for (int i = 0; i < DVs.size() && i < size; i++){
+            DistanceMatrix DV = DVs.get(i);
+            if (DV == null || DV.size() < size){
+                wrong += size;
+                continue;
+            }
+            for (int j = 0; j < size; j++){
+                if (DV.get(i, j) != distances.get(i, j)){
+                    wrong++;
+                }
+            }
+        }
+        return wrong;
+    }
+
+    @Override
+    public String toString() {
+        return "blocked x" + tile + (pool == null ? "" : ", " + pool.getParallelism() + " threads");
+    }
+}
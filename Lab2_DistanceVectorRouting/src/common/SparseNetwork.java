@@ -0,0 +1,306 @@
+package common;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * SparseNetwork holds the link costs of a network in compressed sparse rows (CSR):
+ * the links of node i are at offset(i) to offset(i + 1) - 1, sorted by target node,
+ * so the neighbors of a node are listed in O(degree) and a cost is found in O(log degree)
+ *
+ * Links go both ways, a link is stored once for each direction.
+ * The network does not change, withCost() returns a changed copy
+ */
+public class SparseNetwork implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * number of nodes
+     */
+    private final int numNodes;
+
+    /**
+     * first link of each node, offsets[numNodes] is the number of links
+     */
+    private final int[] offsets;
+
+    /**
+     * target node of each link
+     */
+    private final int[] targets;
+
+    /**
+     * cost of each link, never 0
+     */
+    private final int[] costs;
+
+    /**
+     * constructor, rows must be sorted by target
+     */
+    SparseNetwork(int numNodes, int[] offsets, int[] targets, int[] costs) {
+        this.numNodes = numNodes;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.costs = costs;
+    }
+
+    /**
+     * links of a cost matrix
+     * @param matrix cost of network, 0 means no link
+     * @return network
+     */
+    public static SparseNetwork of(DistanceMatrix matrix){
+        Builder builder = new Builder();
+        for (int i = 0; i < matrix.size(); i++){
+            for (int j = 0; j < matrix.size(); j++){
+                if (matrix.get(i, j) != 0){
+                    builder.add(i, j, matrix.get(i, j));
+                }
+            }
+        }
+        return builder.build(matrix.size());
+    }
+
+    /**
+     * get number of nodes
+     * @return number of nodes
+     */
+    public int numNodes(){
+        return numNodes;
+    }
+
+    /**
+     * number of links, each direction counts
+     * @return number of links
+     */
+    public int numLinks(){
+        return offsets[numNodes];
+    }
+
+    /**
+     * index of first link of node
+     * @param i node index, numNodes() for the end of the last node
+     * @return index
+     */
+    public int offset(int i){
+        return offsets[i];
+    }
+
+    public int target(int link){
+        return targets[link];
+    }
+
+    public int cost(int link){
+        return costs[link];
+    }
+
+    /**
+     * number of links of node
+     * @param i node index
+     * @return degree
+     */
+    public int degree(int i){
+        return i < numNodes ? offsets[i + 1] - offsets[i] : 0;
+    }
+
+    /**
+     * cost of link
+     * @param i from node index
+     * @param j to node index
+     * @return cost, 0 if no link
+     */
+    public int get(int i, int j){
+        int link = find(i, j);
+        return link < 0 ? 0 : costs[link];
+    }
+
+    /**
+     * index of link
+     * @return index, negative if no link
+     */
+    private int find(int i, int j){
+        if (i >= numNodes){
+            return -1;
+        }
+        int link = Arrays.binarySearch(targets, offsets[i], offsets[i + 1], j);
+        return link < 0 ? -1 : link;
+    }
+
+    /**
+     * copy with the cost of a link changed in both directions
+     * @param i node index
+     * @param j node index
+     * @param cost new cost, 0 removes the link
+     * @return network
+     */
+    public SparseNetwork withCost(int i, int j, int cost){
+
+        int forward = find(i, j);
+        int backward = find(j, i);
+
+        if (cost != 0 && forward >= 0 && backward >= 0){
+            //same links, only the costs are copied
+            int[] changed = costs.clone();
+            changed[forward] = cost;
+            changed[backward] = cost;
+            return new SparseNetwork(numNodes, offsets, targets, changed);
+        }
+
+        Builder builder = new Builder();
+        for (int from = 0; from < numNodes; from++){
+            for (int link = offsets[from]; link < offsets[from + 1]; link++){
+                builder.add(from, targets[link], costs[link]);
+            }
+        }
+        builder.link(i, j, cost);
+        return builder.build(numNodes);
+    }
+
+    /**
+     * largest node index with a link, plus one
+     * @return number of linked nodes
+     */
+    public int linkedNodes(){
+        for (int i = numNodes - 1; i >= 0; i--){
+            if (offsets[i + 1] > offsets[i]){
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * dense cost matrix
+     * @return cost of network, 0 means no link
+     */
+    public DistanceMatrix toMatrix(){
+        DistanceMatrix matrix = new DistanceMatrix(numNodes);
+        for (int i = 0; i < numNodes; i++){
+            for (int link = offsets[i]; link < offsets[i + 1]; link++){
+                matrix.set(i, targets[link], costs[link]);
+            }
+        }
+        return matrix;
+    }
+
+    /**
+     * bytes of the arrays
+     * @return bytes
+     */
+    public long bytes(){
+        return 4L * (offsets.length + targets.length + costs.length);
+    }
+
+    @Override
+    public boolean equals(Object other){
+        if (!(other instanceof SparseNetwork)){
+            return false;
+        }
+        SparseNetwork network = (SparseNetwork)other;
+        return numNodes == network.numNodes && Arrays.equals(offsets, network.offsets)
+                && Arrays.equals(targets, network.targets) && Arrays.equals(costs, network.costs);
+    }
+
+    @Override
+    public int hashCode(){
+        return 31 * Arrays.hashCode(targets) + Arrays.hashCode(costs);
+    }
+
+    /**
+     * collects links in any order, a later cost of the same link replaces the earlier one
+     */
+    public static class Builder {
+
+        private int[] from = new int[16];
+        private int[] to = new int[16];
+        private int[] cost = new int[16];
+
+        private int size = 0;
+
+        /**
+         * add link in both directions
+         * @param i node index
+         * @param j node index
+         * @param cost cost, 0 removes the link
+         * @return builder
+         */
+        public Builder link(int i, int j, int cost){
+            add(i, j, cost);
+            add(j, i, cost);
+            return this;
+        }
+
+        /**
+         * add link in one direction
+         */
+        void add(int i, int j, int value){
+            if (size == from.length){
+                from = Arrays.copyOf(from, size * 2);
+                to = Arrays.copyOf(to, size * 2);
+                cost = Arrays.copyOf(cost, size * 2);
+            }
+            from[size] = i;
+            to[size] = j;
+            cost[size] = value;
+            size++;
+        }
+
+        /**
+         * build network
+         * @param numNodes number of nodes, more if a link has a larger node index
+         * @return network
+         */
+        public SparseNetwork build(int numNodes){
+
+            for (int k = 0; k < size; k++){
+                numNodes = Math.max(numNodes, Math.max(from[k], to[k]) + 1);
+            }
+
+            //links by from node, in the order they were added
+            int[] offsets = new int[numNodes + 1];
+            for (int k = 0; k < size; k++){
+                offsets[from[k] + 1]++;
+            }
+            for (int i = 0; i < numNodes; i++){
+                offsets[i + 1] += offsets[i];
+            }
+            long[] keys = new long[size];
+            int[] next = Arrays.copyOf(offsets, numNodes);
+            for (int k = 0; k < size; k++){
+                //sorted by target, then by order
+                keys[next[from[k]]++] = (long)to[k] << 32 | k;
+            }
+
+            int[] targets = new int[size];
+            int[] costs = new int[size];
+            int links = 0;
+            int start = 0;
+
+            for (int i = 0; i < numNodes; i++){
+
+                int end = offsets[i + 1];
+                Arrays.sort(keys, start, end);
+
+                offsets[i] = links;
+                for (int k = start; k < end; k++){
+                    int target = (int)(keys[k] >>> 32);
+                    if (k + 1 < end && (int)(keys[k + 1] >>> 32) == target){
+                        //replaced by a later cost
+                        continue;
+                    }
+                    int value = cost[(int)keys[k]];
+                    if (value != 0){
+                        targets[links] = target;
+                        costs[links] = value;
+                        links++;
+                    }
+                }
+                start = end;
+            }
+            offsets[numNodes] = links;
+
+            return new SparseNetwork(numNodes, offsets, Arrays.copyOf(targets, links), Arrays.copyOf(costs, links));
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package common;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * TaskExecutors creates the executors that run the master fan-out
+ * and the node services
+ * 
+ * thread:  a new platform thread for every task (the original behavior)
+ * virtual: a new virtual thread for every task (JDK 21 or later, 
+ *          otherwise falls back to platform threads)
+ * pool:    a bounded pool of platform threads for the master fan-out, tasks wait in a queue.
+ *          Blocking node services keep a thread per open connection and would take all threads
+ *          of the pool, they get a thread per connection instead (forConnections)
+ */
+public class TaskExecutors {
+    
+    /**
+     * create executor by name
+     * @param mode "thread", "virtual" or "pool"
+     * @param poolSize number of threads of pool
+     * @return executor
+     */
+    public static Executor create(String mode, int poolSize){
+        if ("virtual".equalsIgnoreCase(mode)){
+            return virtualThreadPerTask();
+        }else if ("pool".equalsIgnoreCase(mode)){
+            return boundedPool(poolSize);
+        }
+        return threadPerTask();
+    }
+    
+    /**
+     * create executor from system properties
+     * -Ddvr.executor=thread|virtual|pool, -Ddvr.poolSize=n
+     * @return executor
+     */
+    public static Executor fromSystemProperties(){
+        return create(System.getProperty("dvr.executor", "thread"), 
+                Integer.getInteger("dvr.poolSize", 4 * Runtime.getRuntime().availableProcessors()));
+    }
+    
+    /**
+     * executor of the blocking node services
+     * a service holds its thread as long as its connection is open, a bounded pool is replaced
+     * with a thread per connection
+     * @param executor executor of the simulation
+     * @return executor
+     */
+    public static Executor forConnections(Executor executor){
+        return executor instanceof ThreadPoolExecutor ? threadPerTask() : executor;
+    }
+    
+    /**
+     * a new platform thread for every task
+     * @return executor
+     */
+    public static Executor threadPerTask(){
+        return task -> {
+            Thread thread = new Thread(task);
+            thread.setDaemon(true);
+            thread.start();
+        };
+    }
+    
+    /**
+     * a new virtual thread for every task
+     * falls back to platform threads when the JDK has no virtual threads
+     * @return executor
+     */
+    public static Executor virtualThreadPerTask(){
+        try {
+            Method factory = java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService)factory.invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            Logger.getLogger(TaskExecutors.class.getName()).log(Level.WARNING, 
+                    "Virtual threads are not available, using platform threads");
+            return threadPerTask();
+        }
+    }
+    
+    /**
+     * bounded pool of platform threads
+     * @param poolSize number of threads
+     * @return executor
+     */
+    public static Executor boundedPool(int poolSize){
+        
+        final AtomicInteger threadNumber = new AtomicInteger();
+        
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(poolSize, poolSize, 
+                60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), task -> {
+                    Thread thread = new Thread(task, "pool-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+}
@@ -0,0 +1,55 @@
+package common;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Transport sends a request message to a node and waits for its reply
+ */
+public interface Transport {
+    
+    /**
+     * send request and wait for the reply
+     * @param to node to send to
+     * @param message request
+     * @return reply from node
+     * @throws IOException 
+     */
+    Message request(NodeInfo to, Message message) throws IOException;
+    
+    /**
+     * send request without waiting for the reply
+     * by default the request runs on another thread
+     * @param to node to send to
+     * @param message request
+     * @return reply from node, completed when it arrives
+     */
+    default CompletableFuture<Message> requestAsync(NodeInfo to, Message message){
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return request(to, message);
+            } catch (IOException ex) {
+                throw new CompletionException(ex);
+            }
+        });
+    }
+    
+    /**
+     * close all connections held by this transport
+     */
+    void close();
+    
+    /**
+     * create transport
+     * @param persistent true: long-lived multiplexed connections, false: one socket per request
+     * @param codec codec of requests
+     * @return transport
+     */
+    static Transport create(boolean persistent, MessageCodec codec){
+        if (persistent){
+            return new PooledTransport(codec);
+        }
+        return new OneShotTransport(codec);
+    }
+}
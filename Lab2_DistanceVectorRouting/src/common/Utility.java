@@ -1,6 +1,13 @@
 package common;
 
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.util.Arrays;
 import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Scanner;
 
 /**
  * Utility class
@@ -10,10 +17,11 @@ public class Utility {
     /**
      * get the DV as string format
      * @param numNodes
+     * @param infinity costs from infinity on are shown as Inf
      * @param DV
      * @return DV String
      */
-    public static String DV2String(int numNodes, int[][] DV){
+    public static String DV2String(int numNodes, int infinity, DistanceMatrix DV){
         //display on text area
         String result = "    ";
 
@@ -30,10 +38,10 @@ public class Utility {
 
             //to nodes
             for (int toNode = 0; toNode < numNodes; toNode++){
-                if (DV[fromNode][toNode] >= Configuration.INFINITY){
+                if (DV.get(fromNode, toNode) >= infinity){
                    result += String.format("%-4s", "Inf");
                 }else{
-                    result += String.format("%-4d", DV[fromNode][toNode]);
+                    result += String.format("%-4d", DV.get(fromNode, toNode));
                 }
             }
 
@@ -45,18 +53,113 @@ public class Utility {
     
     /**
      * create matrix with infinity value
+     * @param size rows and columns
+     * @param infinity infinity
      * @return matrix
      */
-    public static int[][] createMatrix(){
+    public static DistanceMatrix createMatrix(int size, int infinity){
+        return new DistanceMatrix(size, infinity);
+    }
+    
+    /**
+     * copy vector into a longer one
+     * @param vector vector
+     * @param size length of the copy, at least the length of vector
+     * @param fill value of the new entries
+     * @return copy
+     */
+    public static int[] resizeVector(int[] vector, int size, int fill){
+        int[] copy = Arrays.copyOf(vector, size);
+        Arrays.fill(copy, vector.length, size, fill);
+        return copy;
+    }
+    
+    /**
+     * load network file, lines of "from node, to node, cost"
+     * the number of nodes is the largest node number
+     * @param file file
+     * @return links of network
+     * @throws FileNotFoundException 
+     */
+    public static SparseNetwork loadNetwork(File file) throws FileNotFoundException{
+        
+        SparseNetwork.Builder links = new SparseNetwork.Builder();
+        
+        //open for 
+        Scanner input = new Scanner(new BufferedInputStream(new FileInputStream(file)));
+        
+        while (input.hasNextInt()){
+            
+            //from node, to node
+            int fromNode = input.nextInt();
+            int toNode = input.nextInt();
+            int cost = input.nextInt();
+            
+            links.link(fromNode - 1, toNode - 1, cost);
+        }
+        
+        //close scanner
+        input.close();
+        
+        return links.build(0);
+    }
+    
+    /**
+     * infinity of network, larger than the cost of every shortest path
+     * a shortest path is at most twice as long as the farthest node from any node of its component,
+     * so one Dijkstra per component is enough, at least MIN_INFINITY
+     * @param numNodes number of nodes, links to other nodes are ignored
+     * @param network links of network
+     * @return infinity
+     */
+    public static int infinity(int numNodes, SparseNetwork network){
         
-        int[][] matrix = new int[Configuration.MAX_NODES][Configuration.MAX_NODES];
+        long[] distance = new long[numNodes];
+        Arrays.fill(distance, Long.MAX_VALUE);
+        boolean[] done = new boolean[numNodes];
+        long longest = 0;
         
-        for (int i = 0; i < Configuration.MAX_NODES; i++){
-            for (int j = 0; j < Configuration.MAX_NODES; j++){
-                matrix[i][j] = Configuration.INFINITY;
+        //distance, node
+        PriorityQueue<long[]> queue = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+        
+        for (int root = 0; root < numNodes; root++){
+            
+            if (done[root]){
+                continue;
             }
+            
+            //Dijkstra from root over the links
+            distance[root] = 0;
+            queue.add(new long[]{0, root});
+            long farthest = 0;
+            
+            while (!queue.isEmpty()){
+                
+                long[] entry = queue.poll();
+                int next = (int)entry[1];
+                if (done[next]){
+                    continue;
+                }
+                
+                done[next] = true;
+                farthest = Math.max(farthest, distance[next]);
+                if (next >= network.numNodes()){
+                    continue;
+                }
+                
+                for (int link = network.offset(next); link < network.offset(next + 1); link++){
+                    int j = network.target(link);
+                    if (j < numNodes && distance[next] + network.cost(link) < distance[j]){
+                        distance[j] = distance[next] + network.cost(link);
+                        queue.add(new long[]{distance[j], j});
+                    }
+                }
+            }
+            
+            longest = Math.max(longest, 2 * farthest);
         }
-        return matrix;
+        
+        return (int)Math.min(Configuration.MAX_INFINITY, Math.max(Configuration.MIN_INFINITY, longest + 1));
     }
     
     /**
@@ -65,15 +168,8 @@ public class Utility {
      * @param matrix2
      * @return true/false 
      */
-    public static boolean equals(int[][] matrix1, int[][] matrix2){
-        for (int i = 0; i < Configuration.MAX_NODES; i++){
-            for (int j = 0; j < Configuration.MAX_NODES; j++){
-                if (matrix1[i][j] != matrix2[i][j]){
-                    return false;
-                }
-            }
-        }
-        return true;
+    public static boolean equals(DistanceMatrix matrix1, DistanceMatrix matrix2){
+        return matrix1 == null ? matrix2 == null : matrix1.contentEquals(matrix2);
     }
     
     /**
@@ -82,7 +178,7 @@ public class Utility {
      * @param matrixList2
      * @return true/false
      */
-    public static boolean equals(List<int[][]> matrixList1, List<int[][]> matrixList2){
+    public static boolean equals(List<DistanceMatrix> matrixList1, List<DistanceMatrix> matrixList2){
         for (int i = 0; i < matrixList1.size(); i++){
             
             if (!Utility.equals(matrixList1.get(i), matrixList2.get(i))){
@@ -0,0 +1,80 @@
+package master;
+
+import common.DistanceMatrix;
+import common.SparseNetwork;
+import java.util.List;
+
+/**
+ * Engine runs the DV steps of a network for MasterFrame,
+ * with a node server per node (Simulation) or all nodes in this process (InProcessSimulation)
+ */
+public interface Engine {
+
+    /**
+     * start simulation, the nodes know the costs of their links
+     */
+    void start();
+
+    /**
+     * run one step, each node updates its DV from the DVs of its neighbors
+     */
+    void runOneStep();
+
+    /**
+     * no node changed its DV in the last step
+     * @return true/false
+     */
+    boolean isStable();
+
+    /**
+     * get DVs of the last step
+     * @return node DVs
+     */
+    List<DistanceMatrix> getNodeDVList();
+
+    /**
+     * change cost of link
+     * the nodes keep the neighbors they start with, a link that was not in the network
+     * when the simulation was created cannot be added
+     * @param fromNode from node index
+     * @param toNode to node index
+     * @param cost new cost, 0 removes the link
+     * @throws IllegalArgumentException if the nodes were not linked
+     */
+    void changeCost(int fromNode, int toNode, int cost);
+
+    /**
+     * get current links of network, with the changed costs
+     * @return links of network
+     */
+    SparseNetwork getNetwork();
+
+    /**
+     * get time of the last step
+     * @return time (ns)
+     */
+    long getStepTime();
+
+    /**
+     * get scheduling overhead of the last step
+     * @return time (ns)
+     */
+    long getSchedulingTime();
+
+    /**
+     * get infinity of network
+     * @return infinity
+     */
+    int getInfinity();
+
+    /**
+     * get number of nodes
+     * @return number of nodes
+     */
+    int getNumNodes();
+
+    /**
+     * stop simulation
+     */
+    void shutdown();
+}
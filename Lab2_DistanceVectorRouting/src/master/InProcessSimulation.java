@@ -0,0 +1,462 @@
+package master;
+
+import common.DistanceMatrix;
+import common.SparseNetwork;
+import common.Utility;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * InProcessSimulation runs the steps of all nodes in this process, without sockets or messages
+ * It gives the same distances and next hops as the lean nodes of Simulation: in a step each node
+ * relaxes its own distances with the distances of its neighbors of the previous step,
+ * neighbors in order, and a route changes only to a shorter one; a cost change starts all nodes over
+ *
+ * The distances of all nodes to a block of destinations are kept twice, a step reads one buffer
+ * and writes the other. The nodes are split over a ForkJoinPool. Each node records the destinations
+ * it changed, its neighbors relax only those in the next step, like the change log of the nodes.
+ * Destinations do not depend on each other, so a network too large for all DVs in memory
+ * is run block by block.
+ */
+public class InProcessSimulation implements Engine {
+
+    /**
+     * nodes updated by one task, times the destinations
+     */
+    private static final int TASK_ENTRIES = 1 << 16;
+
+    /**
+     * number of nodes
+     */
+    private final int numNodes;
+
+    /**
+     * cost of network
+     */
+    private SparseNetwork network;
+
+    /**
+     * links of network when the simulation was created, like the neighbors of the nodes of Simulation
+     */
+    private final SparseNetwork startNetwork;
+
+    /**
+     * infinity of network, found when the simulation is created,
+     * larger when a cost change makes a path longer
+     */
+    private int infinity;
+
+    /**
+     * first destination index
+     */
+    private int firstDestination = 0;
+
+    /**
+     * number of destinations
+     */
+    private int numDestinations;
+
+    /**
+     * runs the steps
+     */
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    /**
+     * distances of the last step, destinations of node i from i * numDestinations
+     */
+    private int[] distances;
+
+    /**
+     * distances of the next step
+     */
+    private int[] nextDistances;
+
+    /**
+     * next hop node numbers, like distances, 0 if unreachable
+     * a node writes only its own entries and reads none of the others
+     */
+    private int[] nextHops;
+
+    /**
+     * destinations each node changed in the last step, from i * numDestinations
+     */
+    private int[] changes;
+
+    /**
+     * number of destinations each node changed in the last step
+     */
+    private int[] changeCounts;
+
+    /**
+     * destinations changed in the next step
+     */
+    private int[] nextChanges;
+
+    /**
+     * number of destinations changed in the next step
+     */
+    private int[] nextChangeCounts;
+
+    /**
+     * number of nodes that changed in the last step
+     */
+    private int numChanged;
+
+    /**
+     * number of the current step
+     */
+    private int round = 0;
+
+    /**
+     * time of the last step (ns)
+     */
+    private long stepTime;
+
+    /**
+     * constructor
+     * @param numNodes number of nodes
+     * @param network cost of network
+     */
+    public InProcessSimulation(int numNodes, SparseNetwork network) {
+        this.numNodes = numNodes;
+        this.network = network;
+        this.startNetwork = network;
+        this.infinity = Utility.infinity(numNodes, network);
+        this.numDestinations = numNodes;
+    }
+
+    /**
+     * start simulation, the nodes know the costs of their links
+     */
+    public void start(){
+
+        int entries = Math.multiplyExact(numNodes, numDestinations);
+        distances = new int[entries];
+        nextDistances = new int[entries];
+        nextHops = new int[entries];
+        changes = new int[entries];
+        nextChanges = new int[entries];
+        changeCounts = new int[numNodes];
+        nextChangeCounts = new int[numNodes];
+        reset();
+    }
+
+    /**
+     * all nodes start over from the costs of their links, like NodeServer.calculate
+     */
+    private void reset(){
+
+        Arrays.fill(distances, infinity);
+        Arrays.fill(nextHops, 0);
+        for (int i = 0; i < numNodes; i++){
+
+            int base = i * numDestinations - firstDestination;
+            for (int link = network.offset(i); link < network.offset(i + 1); link++){
+                int target = network.target(link);
+                if (isDestination(target)){
+                    distances[base + target] = network.cost(link);
+                    nextHops[base + target] = target + 1;
+                }
+            }
+            if (isDestination(i)){
+                distances[base + i] = 0;
+                nextHops[base + i] = i + 1;
+            }
+
+            //the neighbors are new to all nodes, all destinations are relaxed and the next buffer is written
+            for (int k = 0; k < numDestinations; k++){
+                changes[i * numDestinations + k] = k;
+            }
+            changeCounts[i] = numDestinations;
+        }
+        numChanged = numNodes;
+    }
+
+    private boolean isDestination(int node){
+        return node >= firstDestination && node < firstDestination + numDestinations;
+    }
+
+    /**
+     * run one step, all nodes at once
+     */
+    public void runOneStep(){
+
+        long startTime = System.nanoTime();
+
+        int grain = Math.max(1, TASK_ENTRIES / Math.max(1, numDestinations));
+        numChanged = pool.invoke(new Step(0, numNodes, grain));
+
+        //the next step reads what this one wrote
+        int[] distancesRead = distances;
+        distances = nextDistances;
+        nextDistances = distancesRead;
+        int[] changesRead = changes;
+        changes = nextChanges;
+        nextChanges = changesRead;
+        int[] countsRead = changeCounts;
+        changeCounts = nextChangeCounts;
+        nextChangeCounts = countsRead;
+        round++;
+
+        stepTime = System.nanoTime() - startTime;
+    }
+
+    /**
+     * update of a range of nodes
+     */
+    private class Step extends RecursiveTask<Integer> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+
+        private final int to;
+
+        private final int grain;
+
+        Step(int from, int to, int grain) {
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+        }
+
+        @Override
+        protected Integer compute() {
+
+            if (to - from > grain){
+                int middle = (from + to) >>> 1;
+                Step left = new Step(from, middle, grain);
+                left.fork();
+                int right = new Step(middle, to, grain).compute();
+                return left.join() + right;
+            }
+
+            int count = 0;
+            for (int i = from; i < to; i++){
+                if (update(i)){
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+
+    /**
+     * update own distances of node from the distances its neighbors changed in the last step,
+     * the other distances were relaxed before
+     * @param node index of node
+     * @return true if changed
+     */
+    private boolean update(int node){
+
+        int base = node * numDestinations;
+
+        //the next buffer is two steps old, it differs from the last step where the node changed
+        int own = changeCounts[node];
+        if (own == numDestinations){
+            System.arraycopy(distances, base, nextDistances, base, numDestinations);
+        }else{
+            for (int n = 0; n < own; n++){
+                int k = changes[base + n];
+                nextDistances[base + k] = distances[base + k];
+            }
+        }
+
+        int count = 0;
+        for (int link = network.offset(node); link < network.offset(node + 1); link++){
+
+            int neighbor = network.target(link);
+            int cost = network.cost(link);
+            if (neighbor >= numNodes || cost == 0){
+                continue;
+            }
+
+            int neighborBase = neighbor * numDestinations;
+            int changed = changeCounts[neighbor];
+            if (changed == 0){
+                continue;
+            }
+            
+            //many changes: all destinations in order, cheaper than following the changes
+            boolean all = changed > numDestinations / 4;
+            for (int n = 0, end = all ? numDestinations : changed; n < end; n++){
+                int k = all ? n : changes[neighborBase + n];
+                int distance = cost + distances[neighborBase + k];
+                if (distance < nextDistances[base + k]){
+                    if (nextDistances[base + k] == distances[base + k]){
+                        //first change in this step
+                        nextChanges[base + count++] = k;
+                    }
+                    nextDistances[base + k] = distance;
+                    nextHops[base + k] = neighbor + 1;
+                }
+            }
+        }
+        nextChangeCounts[node] = count;
+        return count > 0;
+    }
+
+    /**
+     * no node changed in the last step
+     * @return true/false
+     */
+    public boolean isStable(){
+        return numChanged == 0;
+    }
+
+    /**
+     * run steps until no node changes
+     * @return steps, including the last one that changed nothing
+     */
+    public int runToStable(){
+        int steps = 0;
+        do {
+            runOneStep();
+            steps++;
+        } while (!isStable());
+        return steps;
+    }
+
+    /**
+     * get DV table of the last step, one row per node like the lean nodes of Simulation
+     * needs all destinations
+     * @return node DVs, all nodes share the table
+     */
+    public List<DistanceMatrix> getNodeDVList(){
+
+        if (firstDestination != 0 || numDestinations != numNodes){
+            throw new IllegalStateException("DV tables need all destinations: "
+                    + numDestinations + " of " + numNodes);
+        }
+
+        DistanceMatrix table = Utility.createMatrix(numNodes, infinity);
+        System.arraycopy(distances, 0, table.values(), 0, distances.length);
+
+        List<DistanceMatrix> DVs = new ArrayList<>();
+        for (int i = 0; i < numNodes; i++){
+            DVs.add(table);
+        }
+        return DVs;
+    }
+
+    /**
+     * get distance of a node to a destination of the block
+     * @param node index of node
+     * @param destination index of destination
+     * @return distance, infinity if unreachable
+     */
+    public int getDistance(int node, int destination){
+        return distances[node * numDestinations + destination - firstDestination];
+    }
+
+    /**
+     * get next hop of a node to a destination of the block
+     * @param node index of node
+     * @param destination index of destination
+     * @return index of the neighbor to forward to, node for itself, -1 if unreachable
+     */
+    public int getNextHop(int node, int destination){
+        return nextHops[node * numDestinations + destination - firstDestination] - 1;
+    }
+
+    /**
+     * change cost of link, all nodes start over
+     * only links of the start network can change, like in Simulation, so both give the same DVs
+     * @param fromNode from node index
+     * @param toNode to node index
+     * @param cost new cost, 0 removes the link
+     * @throws IllegalArgumentException if the nodes were not linked
+     */
+    public void changeCost(int fromNode, int toNode, int cost){
+        if (!Simulation.isLink(startNetwork, numNodes, fromNode, toNode)){
+            throw new IllegalArgumentException("Nodes " + (fromNode + 1) + " and " + (toNode + 1) 
+                    + " are not linked, links cannot be added");
+        }
+        network = network.withCost(fromNode, toNode, cost);
+        infinity = Math.max(infinity, Utility.infinity(numNodes, network));
+        reset();
+    }
+
+    /**
+     * nothing to stop, the pool is not owned
+     */
+    public void shutdown(){
+        distances = null;
+        nextDistances = null;
+        nextHops = null;
+    }
+
+    /**
+     * simulate only the distances to a block of destinations, all nodes take part
+     * call before start
+     * @param first first destination index
+     * @param count number of destinations
+     */
+    public void setDestinations(int first, int count) {
+        if (first < 0 || count < 1 || first + count > numNodes){
+            throw new IllegalArgumentException("Destinations out of range: " + first + "+" + count);
+        }
+        this.firstDestination = first;
+        this.numDestinations = count;
+    }
+
+    /**
+     * set pool of the steps
+     * call before start
+     * @param pool pool
+     */
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * get time of the last step
+     * @return time (ns)
+     */
+    public long getStepTime() {
+        return stepTime;
+    }
+
+    /**
+     * no requests are scheduled
+     * @return 0
+     */
+    public long getSchedulingTime() {
+        return 0;
+    }
+
+    /**
+     * get number of the current step
+     * @return step
+     */
+    public int getRound() {
+        return round;
+    }
+
+    /**
+     * get current links of network, with the changed costs
+     * @return links of network
+     */
+    public SparseNetwork getNetwork() {
+        return network;
+    }
+
+    /**
+     * get infinity of network
+     * @return infinity
+     */
+    public int getInfinity() {
+        return infinity;
+    }
+
+    /**
+     * get number of nodes
+     * @return number of nodes
+     */
+    public int getNumNodes() {
+        return numNodes;
+    }
+}
@@ -1,23 +1,19 @@
 package master;
 
-import common.Configuration;
-import common.Message;
-import common.NodeInfo;
+import common.DistanceMatrix;
+import common.MessageCodec;
+import common.MinPlus;
+import common.ShortestPaths;
+import common.SparseNetwork;
+import common.TaskExecutors;
 import common.Utility;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.net.Socket;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Scanner;
-import java.util.logging.Level;
-import java.util.logging.Logger;
+import java.util.concurrent.Executor;
 import javax.swing.JFileChooser;
 import javax.swing.JOptionPane;
 import javax.swing.JTextArea;
-import node.NodeServer;
 
 /**
  *refrence: https://github.com/adamvh/VectorRouting
@@ -38,29 +34,105 @@ public class MasterFrame extends javax.swing.JFrame {
     private int numNodes;
     
     /**
-     * initial cost of network
+     * initial links of network
      */
-    private int[][] network;
+    private SparseNetwork network;
     
     /**
-     * node information
+     * simulation, with the nodes or in this process
      */
-    private List<NodeInfo> nodeInfoList = new ArrayList<>();
+    private Engine simulation;
     
     /**
-     * node servers
+     * use long-lived connections to nodes, -Ddvr.persistent=false for one socket per request
      */
-    private List<NodeServer> nodeThreadList = new ArrayList<>();
+    private final boolean persistent = !"false".equals(System.getProperty("dvr.persistent"));
     
     /**
-     * output text areas
+     * codec of messages, -Ddvr.codec=java for Java serialization
      */
-    private final JTextArea[] outputs;
+    private final MessageCodec codec = MessageCodec.forName(System.getProperty("dvr.codec", "binary"));
+    
+    /**
+     * serve nodes by shared event loops, -Ddvr.nio=true
+     */
+    private final boolean nonBlocking = Boolean.getBoolean("dvr.nio");
+    
+    /**
+     * nodes push updates and master only observes, -Ddvr.push=true
+     */
+    private final boolean pushUpdates = Boolean.getBoolean("dvr.push");
+    
+    /**
+     * nodes push updates as UDP datagrams, -Ddvr.udp=true (with -Ddvr.push=true)
+     */
+    private final boolean datagramAdvertisements = Boolean.getBoolean("dvr.udp");
+    
+    /**
+     * one batch per node and step, -Ddvr.batch=false for a request per phase
+     */
+    private final boolean batchSteps = !"false".equals(System.getProperty("dvr.batch"));
+    
+    /**
+     * nodes share DVs in memory, -Ddvr.shm=true, or -Ddvr.shm=file for a mapped file
+     */
+    private final String sharedMemory = System.getProperty("dvr.shm", "false");
+    
+    /**
+     * nodes keep only own distances and the distances of neighbors, -Ddvr.lean=true
+     */
+    private final boolean leanNodes = Boolean.getBoolean("dvr.lean");
+    
+    /**
+     * nodes relax only the changed neighbor entries, -Ddvr.incremental=false to recompute from all
+     */
+    private final boolean incrementalUpdates = !"false".equals(System.getProperty("dvr.incremental"));
+    
+    /**
+     * nodes keep their distances when costs change, -Ddvr.keepDistances=true
+     */
+    private final boolean keepDistances = Boolean.getBoolean("dvr.keepDistances");
+    
+    /**
+     * split horizon with poison reverse, -Ddvr.poisonReverse=true
+     */
+    private final boolean poisonReverse = Boolean.getBoolean("dvr.poisonReverse");
+    
+    /**
+     * nodes route only through feasible successors, -Ddvr.feasibleSuccessors=true
+     */
+    private final boolean feasibleSuccessors = Boolean.getBoolean("dvr.feasibleSuccessors");
+    
+    /**
+     * a link change is sent to the two ends of the link only, -Ddvr.localizedChanges=true
+     */
+    private final boolean localizedChanges = Boolean.getBoolean("dvr.localizedChanges");
     
     /**
-     * node DVs
+     * master detects stability from DV versions or advertisement counts
+     * and requests the DVs only to show them, -Ddvr.convergenceDetection=true
      */
-    private List<int[][]> nodeDVList = new ArrayList<>();
+    private final boolean convergenceDetection = Boolean.getBoolean("dvr.convergenceDetection");
+    
+    /**
+     * engine of the steps, -Ddvr.engine=nodes|inprocess, inprocess runs all nodes in this process
+     */
+    private final String engine = System.getProperty("dvr.engine", "nodes");
+    
+    /**
+     * min-plus kernel of the node updates, -Ddvr.kernelWidth=n entries tested together, 1 for scalar
+     */
+    private final MinPlus kernel = MinPlus.fromSystemProperties();
+    
+    /**
+     * executor of requests and node services, -Ddvr.executor=thread|virtual|pool
+     */
+    private final Executor executor = TaskExecutors.fromSystemProperties();
+    
+    /**
+     * output text areas
+     */
+    private final JTextArea[] outputs;
     
     /**
      * number of steps to move to stable state
@@ -102,129 +174,56 @@ public class MasterFrame extends javax.swing.JFrame {
      */
     private void startSimulation(){
         
-        nodeInfoList = new ArrayList<>();
-        
-        //initialize the node information
-        for (int i = 0; i < numNodes; i++){
-            nodeInfoList.add(new NodeInfo(i + 1, Configuration.NODE_ADDRESS, Configuration.BASIC_PORT + i + 1));
-        }
-        
-        //create neighbors
-        for (int i = 0; i < numNodes; i++){
-            
-            //neighbors of node i 
-            List<NodeInfo> neighbors = new ArrayList<>();
-            
-            for (int j = 0; j < numNodes; j++){
-                if (network[i][j] != 0){
-                    neighbors.add(nodeInfoList.get(j));
-                }
-            }
-            
-            //create node server
-            NodeServer server = new NodeServer(numNodes, nodeInfoList.get(i), network, neighbors);
-         
-            //add to list
-            nodeThreadList.add(server);
-        }
-        
-        //start nodes
-        for (int i = 0; i < numNodes; i++){
-            nodeThreadList.get(i).start();
-        }
-        
-        try {
-            //wait for 1 second
-            Thread.sleep(1000);
-        } catch (InterruptedException ex) {
-            //ignore
+        if ("inprocess".equals(engine)){
+            simulation = new InProcessSimulation(numNodes, network);
+            simulation.start();
+            displayDV_RT();
+            return;
         }
         
-        //retrieve DV and routing table
-        requestDV_RT();
+        Simulation simulation = new Simulation(numNodes, network, persistent, codec);
+        this.simulation = simulation;
+        simulation.setNonBlocking(nonBlocking);
+        simulation.setExecutor(executor);
+        simulation.setPushUpdates(pushUpdates);
+        simulation.setDatagramAdvertisements(datagramAdvertisements);
+        simulation.setBatchSteps(batchSteps);
+        simulation.setSharedMemory(!"false".equals(sharedMemory), 
+                "true".equals(sharedMemory) || "false".equals(sharedMemory) ? null : new File(sharedMemory));
+        simulation.setLeanNodes(leanNodes);
+        simulation.setIncrementalUpdates(incrementalUpdates);
+        simulation.setKernel(kernel);
+        simulation.setKeepDistances(keepDistances);
+        simulation.setPoisonReverse(poisonReverse);
+        simulation.setFeasibleSuccessors(feasibleSuccessors);
+        simulation.setLocalizedChanges(localizedChanges);
+        simulation.setConvergenceDetection(convergenceDetection);
+        simulation.start();
         
         //display
         displayDV_RT();
     }
     
-    /**
-     * class that retrieves DV
-     */
-    private class RequestThread extends Thread{
-        
-        //DV from node
-        int[][] DV;
-        
-        //node info
-        NodeInfo info;
-        
-        //constructor
-        RequestThread(NodeInfo info){
-            this.info = info;
-        }
-        
-        public void run(){
-            try {
-
-                Socket clientSocket = new Socket(info.getAddress(), info.getPort());
-                ObjectOutputStream outToServer = new ObjectOutputStream(clientSocket.getOutputStream());
-                ObjectInputStream inFromClient = new ObjectInputStream(clientSocket.getInputStream());       
-
-                //send request
-                Message message = new Message();
-                message.type = Message.REQUEST_DV_RT;
-                outToServer.writeObject(message);
-
-                //read response
-                message = (Message)inFromClient.readObject();
-
-                clientSocket.close();
-
-                DV = message.DV;
-
-            } catch (Exception ex) {
-                Logger.getLogger(MasterFrame.class.getName()).log(Level.SEVERE, null, ex);
-            }
-        }
-    }
-    
     /**
      * display
      */
     private void displayDV_RT(){
-        for (int i = 0; i < numNodes; i++){
-            outputs[i].setText(Utility.DV2String(numNodes, nodeDVList.get(i)));
+        List<DistanceMatrix> nodeDVList = simulation.getNodeDVList();
+        //there are text areas for the first nodes only
+        for (int i = 0; i < Math.min(numNodes, outputs.length); i++){
+            outputs[i].setText(Utility.DV2String(numNodes, simulation.getInfinity(), nodeDVList.get(i)));
         }
     }
     
     /**
-     * request distance vector and routing table
+     * compare the converged DVs with the shortest paths of the current network
+     * @return result to show
      */
-    private void requestDV_RT(){
-        
-        nodeDVList = new ArrayList<>();
+    private String verify(){
         
-        //request threads
-        List<RequestThread> requestThreads = new ArrayList<>();
-        
-        //step 1
-        for (int i = 0; i < numNodes; i++){
-            
-            RequestThread thread = new RequestThread(nodeInfoList.get(i));
-            thread.start();
-            requestThreads.add(thread);
-        }
-        for (int i = 0; i < numNodes; i++){
-            try {
-                requestThreads.get(i).join();
-            } catch (InterruptedException ex) {
-                Logger.getLogger(MasterFrame.class.getName()).log(Level.SEVERE, null, ex);
-            }
-        }
-        
-        for (int i = 0; i < numNodes; i++){
-            nodeDVList.add(requestThreads.get(i).DV);
-        }
+        DistanceMatrix distances = ShortestPaths.parallel().compute(numNodes, simulation.getNetwork(), simulation.getInfinity());
+        int wrong = ShortestPaths.verify(simulation.getNodeDVList(), distances);
+        return wrong == 0 ? ", DVs are shortest paths" : ", " + wrong + " distances are not shortest paths";
     }
     
     /**
@@ -232,29 +231,10 @@ public class MasterFrame extends javax.swing.JFrame {
      */
     private void loadNetworkFile() throws FileNotFoundException{
         
-        network = new int[Configuration.MAX_NODES][Configuration.MAX_NODES];
-        
-        //open for 
-        Scanner input = new Scanner(new File(inputFilename));
-        
-        while (input.hasNextInt()){
-            
-            //from node, to node
-            int fromNode = input.nextInt();
-            int toNode = input.nextInt();
-            int cost = input.nextInt();
-            
-            network[fromNode - 1][toNode - 1] = cost;
-            network[toNode - 1][fromNode - 1] = cost;
-            
-            //calculate number of nodes
-            numNodes = Math.max(numNodes, Math.max(fromNode, toNode));
-        }
-        
-        //close scanner
-        input.close();
+        network = Utility.loadNetwork(new File(inputFilename));
+        numNodes = network.numNodes();
         
-        //System.out.println(Utility.DV2String(numNodes, network));
+        //System.out.println(Utility.DV2String(numNodes, Utility.infinity(numNodes, network), network.toMatrix()));
     }
 
     /**
@@ -577,102 +557,6 @@ public class MasterFrame extends javax.swing.JFrame {
         btnStart.setEnabled(false);
     }//GEN-LAST:event_btnStartActionPerformed
 
-    /**
-     * run one step
-     */
-    private void runOneStep(){
-        
-         //request threads
-        List<Thread> requestThreads = new ArrayList<>();
-        
-        //step 1
-        for (int i = 0; i < numNodes; i++){
-            
-            final NodeInfo info = nodeInfoList.get(i);
-            
-            Thread thread = new Thread(){
-                public void run(){
-                
-                    try {
-                        //System.out.println(nodeInfoList.get(i).getAddress() + " : " + nodeInfoList.get(i).getPort());
-                        Socket clientSocket = new Socket(info.getAddress(), info.getPort());
-                        ObjectOutputStream outToServer = new ObjectOutputStream(clientSocket.getOutputStream());    
-                        ObjectInputStream inFromClient = new ObjectInputStream(clientSocket.getInputStream());       
-
-                        //send request
-                        Message message = new Message();
-                        message.type = Message.REQUEST_NEIGHBOUR_DVS;
-                        outToServer.writeObject(message);
-
-                        //read response
-                        message = (Message)inFromClient.readObject();
-
-                        clientSocket.close();
-
-                    } catch (Exception ex) {
-                        //System.out.println("Error at " + nodeInfoList.get(i).getAddress() + " : " + nodeInfoList.get(i).getPort());
-                        Logger.getLogger(MasterFrame.class.getName()).log(Level.SEVERE, null, ex);
-                    }
-                }
-            };
-            thread.start();
-            requestThreads.add(thread);
-        }
-        for (int i = 0; i < numNodes; i++){
-            try {
-                requestThreads.get(i).join();
-            } catch (InterruptedException ex) {
-                Logger.getLogger(MasterFrame.class.getName()).log(Level.SEVERE, null, ex);
-            }
-        }
-        requestThreads.clear();
-        
-        //step 2
-        for (int i = 0; i < numNodes; i++){
-            
-            final NodeInfo info = nodeInfoList.get(i);
-            
-            Thread thread = new Thread(){
-                public void run(){
-                    try {
-
-                        Socket clientSocket = new Socket(info.getAddress(), info.getPort());
-                        ObjectOutputStream outToServer = new ObjectOutputStream(clientSocket.getOutputStream());    
-                        ObjectInputStream inFromClient = new ObjectInputStream(clientSocket.getInputStream());  
-
-                        //send request
-                        Message message = new Message();
-                        message.type = Message.REQUEST_UPDATE_DV;
-                        outToServer.writeObject(message);
-
-                        //read response
-                        message = (Message)inFromClient.readObject();
-
-                        clientSocket.close();
-
-                    } catch (Exception ex) {
-                        Logger.getLogger(MasterFrame.class.getName()).log(Level.SEVERE, null, ex);
-                    }
-                }
-            };
-            thread.start();
-            requestThreads.add(thread);
-        }
-        
-        for (int i = 0; i < numNodes; i++){
-            try {
-                requestThreads.get(i).join();
-            } catch (InterruptedException ex) {
-                Logger.getLogger(MasterFrame.class.getName()).log(Level.SEVERE, null, ex);
-            }
-        }
-        requestThreads.clear();
-        
-        //step 3
-        //retrieve DV and routing table
-        requestDV_RT();
-    }
-    
     /**
      * run in3 steps
      * 1 - ask all nodes to request the DVs of neighbors
@@ -691,21 +575,21 @@ public class MasterFrame extends javax.swing.JFrame {
             JOptionPane.showMessageDialog(this, "The system have been in stable already");
         }else{
             
-            List<int[][]> temNodeDVList = nodeDVList;
-            
             numSteps++;
        
-            runOneStep();
+            simulation.runOneStep();
 
             //show it
             displayDV_RT(); 
 
             txtSimulationResult.setText("Step: " + numSteps);
+            lblRunningTime.setText(String.format("Step time (ms): %.1f, scheduling (ms): %.1f", 
+                    simulation.getStepTime() / 1e6, simulation.getSchedulingTime() / 1e6));
             
             //check stable
-            if (Utility.equals(temNodeDVList, nodeDVList)){
+            if (simulation.isStable()){
                 isStable = true;
-                lblStableState.setText("The system has been in stable state");
+                lblStableState.setText("The system has been in stable state" + verify());
             }
         }
         
@@ -722,6 +606,13 @@ public class MasterFrame extends javax.swing.JFrame {
             
             File selectedFile = jfc.getSelectedFile();
             inputFilename = selectedFile.getAbsolutePath();
+            
+            try {
+                loadNetworkFile();
+            } catch (FileNotFoundException ex) {
+                JOptionPane.showMessageDialog(this, "Could not open file " + inputFilename);
+                return;
+            }
 
             btnStart.setEnabled(true);            
             mnuOpenNetwork.setEnabled(false); //allow once only
@@ -744,27 +635,31 @@ public class MasterFrame extends javax.swing.JFrame {
         //start time
         long startTime = System.currentTimeMillis();
         
+        //thread creation and scheduling overhead
+        long schedulingTime = 0;
+        
         while (!isStable){
             
-            List<int[][]> temNodeDVList = nodeDVList;
-            
             numSteps++;
        
-            runOneStep();            
+            simulation.runOneStep();            
+            
+            schedulingTime += simulation.getSchedulingTime();
 
             txtSimulationResult.setText("Step: " + numSteps);
             
             //check stable
-            if (Utility.equals(temNodeDVList, nodeDVList)){
+            if (simulation.isStable()){
                 isStable = true;
-                lblStableState.setText("The system has been in stable state");
+                lblStableState.setText("The system has been in stable state" + verify());
             }
         }   
         
         //start time
         long endTime = System.currentTimeMillis();
         
-        lblRunningTime.setText("Elapsed time (ms): " + (endTime - startTime));
+        lblRunningTime.setText(String.format("Elapsed time (ms): %d, scheduling (ms): %.1f", 
+                endTime - startTime, schedulingTime / 1e6));
         
         //show it
         displayDV_RT(); 
@@ -788,77 +683,32 @@ public class MasterFrame extends javax.swing.JFrame {
             int toNode = Integer.parseInt(txtToNode.getText()) - 1;
             int cost = Integer.parseInt(txtCost.getText());
             
+            //set new cost, send to all nodes; a link that is not in the network is rejected
+            simulation.changeCost(fromNode, toNode, cost);
+            
             isStable = false;
             lblStableState.setText("");
             
-            //set new cost
-            network[fromNode][toNode] = cost;
-            network[toNode][fromNode] = cost;
-            
-            //request threads
-           List<Thread> requestThreads = new ArrayList<>();
-
-           //step 1
-           for (int i = 0; i < numNodes; i++){
-
-               final NodeInfo info = nodeInfoList.get(i);
-
-               Thread thread = new Thread(){
-                   public void run(){
-
-                       try {
-                           //System.out.println(nodeInfoList.get(i).getAddress() + " : " + nodeInfoList.get(i).getPort());
-                           Socket clientSocket = new Socket(info.getAddress(), info.getPort());
-                           ObjectOutputStream outToServer = new ObjectOutputStream(clientSocket.getOutputStream());    
-                           ObjectInputStream inFromClient = new ObjectInputStream(clientSocket.getInputStream());       
-
-                           //send request
-                           Message message = new Message();
-                           message.type = Message.REQUEST_CHANGE_COST;
-                           message.costs = network;
-                           outToServer.writeObject(message);
-
-                           //read response
-                           message = (Message)inFromClient.readObject();
-
-                           clientSocket.close();
-
-                       } catch (Exception ex) {
-                           //System.out.println("Error at " + nodeInfoList.get(i).getAddress() + " : " + nodeInfoList.get(i).getPort());
-                           Logger.getLogger(MasterFrame.class.getName()).log(Level.SEVERE, null, ex);
-                       }
-                   }
-               };
-               thread.start();
-               requestThreads.add(thread);
-            }
-            for (int i = 0; i < numNodes; i++){
-                try {
-                    requestThreads.get(i).join();
-                } catch (InterruptedException ex) {
-                    Logger.getLogger(MasterFrame.class.getName()).log(Level.SEVERE, null, ex);
-                }
-            }
-            requestThreads.clear();
-            
             //run ONE step
 
-            List<int[][]> temNodeDVList = nodeDVList;
-            
             numSteps++;
 
-            runOneStep();            
+            simulation.runOneStep();            
 
             txtSimulationResult.setText("Step: " + numSteps);
             
             displayDV_RT();
 
             //check stable
-            if (Utility.equals(temNodeDVList, nodeDVList)){
+            if (simulation.isStable()){
                 isStable = true;
-                lblStableState.setText("The system has been in stable state");
+                lblStableState.setText("The system has been in stable state" + verify());
             }
           
+        }catch(NumberFormatException ex){
+            JOptionPane.showMessageDialog(this, "Invalid input");
+        }catch(IllegalArgumentException ex){
+            JOptionPane.showMessageDialog(this, ex.getMessage());
         }catch(Exception ex){
             JOptionPane.showMessageDialog(this, "Invalid input");
         }
@@ -0,0 +1,991 @@
+package master;
+
+import common.Configuration;
+import common.DistanceMatrix;
+import common.Message;
+import common.MessageCodec;
+import common.MinPlus;
+import common.NodeInfo;
+import common.SharedDVRegion;
+import common.SparseNetwork;
+import common.TaskExecutors;
+import common.Transport;
+import common.Utility;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import node.LoopTransport;
+import node.NodeServer;
+
+/**
+ * Simulation creates the nodes and drives them step by step
+ * It has no GUI, MasterFrame and the benchmarks use it
+ */
+public class Simulation implements Engine {
+
+    /**
+     * number of nodes
+     */
+    private final int numNodes;
+
+    /**
+     * cost of network
+     */
+    private SparseNetwork network;
+    
+    /**
+     * links of network when the simulation was created, the neighbors of the nodes
+     */
+    private final SparseNetwork startNetwork;
+    
+    /**
+     * infinity of network, found when the simulation is created,
+     * larger when a cost change makes a path longer
+     */
+    private int infinity;
+
+    /**
+     * true: long-lived connections, false: one socket per request
+     */
+    private final boolean persistent;
+
+    /**
+     * codec of messages
+     */
+    private final MessageCodec codec;
+
+    /**
+     * nodes are served by shared event loops instead of a thread per connection
+     */
+    private boolean nonBlocking = false;
+
+    /**
+     * nodes push their DV to neighbors when it changes, the master only observes
+     */
+    private boolean pushUpdates = false;
+
+    /**
+     * nodes push their DV as UDP datagrams
+     */
+    private boolean datagramAdvertisements = false;
+
+    /**
+     * a step is one batch per node, sent to all nodes without waiting
+     */
+    private boolean batchSteps = true;
+    
+    /**
+     * nodes share their DVs in memory instead of requesting them
+     */
+    private boolean sharedMemory = false;
+    
+    /**
+     * mapped file of the shared DVs, null for memory of this process
+     */
+    private File sharedFile;
+    
+    /**
+     * nodes keep only own distances and the distances of neighbors, not the DV table
+     */
+    private boolean leanNodes = false;
+    
+    /**
+     * nodes relax only the neighbor entries that changed since their last update
+     */
+    private boolean incrementalUpdates = true;
+    
+    /**
+     * nodes keep their distances when costs change and recompute them, instead of starting over
+     */
+    private boolean keepDistances = false;
+    
+    /**
+     * nodes send own distances routed through a neighbor to it as infinity (split horizon with poison reverse)
+     */
+    private boolean poisonReverse = false;
+    
+    /**
+     * nodes route only through feasible successors and keep their distances when costs change
+     */
+    private boolean feasibleSuccessors = false;
+    
+    /**
+     * a link change is sent to the two ends of the link only, the nodes keep their distances
+     */
+    private boolean localizedChanges = false;
+    
+    /**
+     * the master detects stability from the DV versions or advertisement counts of the nodes
+     * and requests the DVs only when they are read
+     */
+    private boolean convergenceDetection = false;
+    
+    /**
+     * min-plus kernel of the node updates
+     */
+    private MinPlus kernel = MinPlus.of(MinPlus.DEFAULT_WIDTH);
+    
+    /**
+     * DVs of all nodes, shared memory mode
+     */
+    private SharedDVRegion sharedDVs;
+    
+    /**
+     * number of the current step
+     */
+    private int round = 0;
+    
+    /**
+     * nodes are to be asked to push their DV in the next step
+     */
+    private boolean advertisePending = false;
+
+    /**
+     * runs the requests to nodes and the node services
+     */
+    private Executor executor = TaskExecutors.threadPerTask();
+
+    /**
+     * time of the last step (ns)
+     */
+    private long stepTime;
+
+    /**
+     * time between submitting the requests of the last step and their start (ns),
+     * thread creation and scheduling overhead
+     */
+    private final AtomicLong schedulingTime = new AtomicLong();
+
+    /**
+     * transport from master to nodes
+     */
+    private Transport transport;
+
+    /**
+     * node information
+     */
+    private List<NodeInfo> nodeInfoList = new ArrayList<>();
+
+    /**
+     * node servers
+     */
+    private List<NodeServer> nodeThreadList = new ArrayList<>();
+
+    /**
+     * node DVs
+     */
+    private List<DistanceMatrix> nodeDVList = new ArrayList<>();
+    
+    /**
+     * node DVs before the last step, stability without convergence detection
+     */
+    private List<DistanceMatrix> previousDVList;
+    
+    /**
+     * the nodes changed since the DVs were retrieved, convergence detection
+     */
+    private boolean DVsOutdated = false;
+    
+    /**
+     * DV version of each node after the last step, -1 if it did not reply
+     */
+    private long[] versions;
+    
+    /**
+     * sums of advertisements sent and received of the last status round if all nodes were passive,
+     * else null; push mode with convergence detection
+     */
+    private long[] lastCounts;
+    
+    /**
+     * no node changed in the last step, convergence detection or nodes pushing over TCP
+     */
+    private boolean stable = false;
+
+    /**
+     * constructor
+     * @param numNodes number of nodes
+     * @param network cost of network
+     * @param persistent true: long-lived connections, false: one socket per request
+     * @param codec codec of messages
+     */
+    public Simulation(int numNodes, SparseNetwork network, boolean persistent, MessageCodec codec) {
+        this.numNodes = numNodes;
+        this.network = network;
+        this.infinity = Utility.infinity(numNodes, network);
+        this.startNetwork = network;
+        this.persistent = persistent;
+        this.codec = codec;
+        this.transport = Transport.create(persistent, codec);
+    }
+
+    /**
+     * start simulation
+     * 1. create Nodes (TCP Socket Server)
+     * 2. send initial data to them
+     * 3. send message to them to retrieve the data (DV table, Routing table)
+     */
+    public void start(){
+
+        nodeInfoList = new ArrayList<>();
+        
+        if (nonBlocking && persistent){
+            //the event loops read the replies too
+            transport = new LoopTransport(codec);
+        }
+        
+        if (sharedMemory && leanNodes){
+            //the region holds DV tables
+            Logger.getLogger(Simulation.class.getName()).log(Level.WARNING, 
+                    "Lean nodes do not share memory, they request the vectors");
+        }else if (sharedMemory){
+            try {
+                sharedDVs = sharedFile == null 
+                        ? SharedDVRegion.allocate(numNodes, numNodes)
+                        : SharedDVRegion.map(sharedFile, numNodes, numNodes, true);
+            } catch (IOException | IllegalArgumentException ex) {
+                //nodes request the DVs
+                Logger.getLogger(MasterFrame.class.getName()).log(Level.SEVERE, null, ex);
+            }
+        }
+
+        if (convergenceDetection && pushUpdates && datagramAdvertisements){
+            //the counts would never match
+            Logger.getLogger(Simulation.class.getName()).log(Level.WARNING, 
+                    "Lost datagrams are not counted, stability is detected from the DVs");
+            convergenceDetection = false;
+        }
+
+        if (sharedMemory && poisonReverse){
+            //all neighbors read the same DV
+            Logger.getLogger(Simulation.class.getName()).log(Level.WARNING, 
+                    "Shared DVs are not poisoned, poison reverse needs requests");
+        }
+
+        //initialize the node information
+        for (int i = 0; i < numNodes; i++){
+            nodeInfoList.add(new NodeInfo(i + 1, Configuration.NODE_ADDRESS, Configuration.BASIC_PORT + i + 1));
+        }
+
+        //create neighbors
+        for (int i = 0; i < numNodes; i++){
+
+            //neighbors of node i
+            List<NodeInfo> neighbors = new ArrayList<>();
+
+            for (int k = 0; k < network.degree(i); k++){
+                int j = network.target(network.offset(i) + k);
+                if (j < numNodes){
+                    neighbors.add(nodeInfoList.get(j));
+                }
+            }
+
+            //create node server
+            NodeServer server = new NodeServer(numNodes, infinity, nodeInfoList.get(i), network, neighbors, 
+                    nonBlocking && persistent ? new LoopTransport(codec) : Transport.create(persistent, codec), leanNodes);
+            server.setNonBlocking(nonBlocking);
+            server.setExecutor(TaskExecutors.forConnections(executor));
+            server.setDatagramAdvertisements(datagramAdvertisements);
+            server.setSharedDVs(sharedDVs);
+            server.setIncremental(incrementalUpdates);
+            server.setKernel(kernel);
+            server.setKeepDistances(keepDistances || localizedChanges);
+            server.setPoisonReverse(poisonReverse && sharedDVs == null);
+            server.setFeasibleSuccessors(feasibleSuccessors);
+
+            //add to list
+            nodeThreadList.add(server);
+        }
+
+        //start nodes
+        for (int i = 0; i < numNodes; i++){
+            nodeThreadList.get(i).start();
+        }
+
+        try {
+            //wait for 1 second
+            Thread.sleep(1000);
+        } catch (InterruptedException ex) {
+            //ignore
+        }
+
+        //nodes start to push in the first step
+        advertisePending = pushUpdates;
+        versions = new long[numNodes];
+
+        //retrieve DV and routing table
+        if (convergenceDetection){
+            DVsOutdated = true;
+        }else{
+            requestDV_RT();
+        }
+    }
+
+    /**
+     * run one step
+     * 1 - ask all nodes to request the DVs of neighbors
+     * 2 - ask them to calculate
+     * 3 - retrieve DV and routing table
+     * in batch mode the three requests go to each node in one batch,
+     * the step number keeps the nodes in step
+     * when nodes push updates, the step only waits and observes
+     * with convergence detection the nodes reply with their DV version or advertisement counts only,
+     * the DVs are requested when they are read
+     */
+    public void runOneStep(){
+
+        long startTime = System.nanoTime();
+        schedulingTime.set(0);
+        previousDVList = convergenceDetection ? null : nodeDVList;
+
+        if (pushUpdates){
+            if (advertisePending){
+                sendToAll(Message.REQUEST_ADVERTISE, null);
+                advertisePending = false;
+            }
+            try {
+                Thread.sleep(Configuration.OBSERVE_INTERVAL);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            if (convergenceDetection){
+                stable = terminated(sendToAll(Message.REQUEST_STATUS, null));
+                DVsOutdated = true;
+            }else{
+                //equal DVs a short interval apart do not mean no advertisement is on the way
+                if (!datagramAdvertisements){
+                    stable = terminated(sendToAll(Message.REQUEST_STATUS, null));
+                }
+                requestDV_RT();
+            }
+            stepTime = System.nanoTime() - startTime;
+            return;
+        }
+
+        round++;
+        
+        if (convergenceDetection){
+            Message[] updateReplies;
+            if (batchSteps){
+                Message[] replies = sendBatchToAll(round, Message.REQUEST_NEIGHBOUR_DVS, Message.REQUEST_UPDATE_DV);
+                updateReplies = new Message[numNodes];
+                for (int i = 0; i < numNodes; i++){
+                    updateReplies[i] = replies[i] == null ? null : replies[i].batch[1];
+                }
+            }else{
+                sendToAll(Message.REQUEST_NEIGHBOUR_DVS, null);
+                updateReplies = sendToAll(Message.REQUEST_UPDATE_DV, null);
+            }
+            stable = unchanged(updateReplies);
+            DVsOutdated = true;
+            stepTime = System.nanoTime() - startTime;
+            return;
+        }
+        
+        if (batchSteps && sharedDVs != null){
+            //the DVs are read from shared memory
+            sendBatchToAll(round, Message.REQUEST_NEIGHBOUR_DVS, Message.REQUEST_UPDATE_DV);
+            requestDV_RT();
+            stepTime = System.nanoTime() - startTime;
+            return;
+        }
+        
+        if (batchSteps){
+            Message[] replies = sendBatchToAll(round, Message.REQUEST_NEIGHBOUR_DVS, 
+                    Message.REQUEST_UPDATE_DV, Message.REQUEST_DV_RT);
+            
+            Message[] DVReplies = new Message[numNodes];
+            for (int i = 0; i < numNodes; i++){
+                DVReplies[i] = replies[i] == null ? null : replies[i].batch[2];
+            }
+            nodeDVList = toDVList(DVReplies);
+            stepTime = System.nanoTime() - startTime;
+            return;
+        }
+        
+        //step 1
+        sendToAll(Message.REQUEST_NEIGHBOUR_DVS, null);
+
+        //step 2
+        sendToAll(Message.REQUEST_UPDATE_DV, null);
+
+        //step 3
+        //retrieve DV and routing table
+        requestDV_RT();
+
+        stepTime = System.nanoTime() - startTime;
+    }
+
+    /**
+     * no DV version changed in the step and no destination is active, the versions of the replies are kept
+     * for the next one; a node that changed only next hops counts as changed, and with feasible successors
+     * a node waiting for its neighbors does not change its version, so it counts as changed too
+     * @param replies replies of REQUEST_UPDATE_DV by node index, null if failed
+     * @return true if no node changed
+     */
+    private boolean unchanged(Message[] replies){
+        
+        boolean unchanged = true;
+        for (int i = 0; i < numNodes; i++){
+            long version = replies[i] == null ? -1 : replies[i].version;
+            unchanged &= version == versions[i];
+            unchanged &= replies[i] == null || replies[i].counts == null;
+            versions[i] = version;
+        }
+        return unchanged;
+    }
+    
+    /**
+     * termination detection of pushing nodes, by counting: the nodes are done when all of them are passive,
+     * without active destinations, and every advertisement sent was received, in two status rounds with the same counts;
+     * an advertisement still on the way, or a node that became busy between its replies, changes the counts
+     * @param replies replies of REQUEST_STATUS by node index, null if failed
+     * @return true if the nodes are done
+     */
+    private boolean terminated(Message[] replies){
+        
+        long sent = 0;
+        long received = 0;
+        boolean passive = true;
+        for (Message reply : replies){
+            if (reply == null || reply.counts == null){
+                passive = false;
+                continue;
+            }
+            sent += reply.counts[0];
+            received += reply.counts[1];
+            passive &= reply.counts[2] == 0 && reply.counts[3] == 0;
+        }
+        
+        long[] counts = passive && sent == received ? new long[]{sent, received} : null;
+        boolean terminated = counts != null && Arrays.equals(counts, lastCounts);
+        lastCounts = counts;
+        return terminated;
+    }
+    
+    /**
+     * no node changed in the last step
+     * with convergence detection, and for nodes pushing over TCP, from the replies of the step,
+     * else by comparing the DVs with those of the step before;
+     * datagrams are not counted, with datagram pushes the comparison is a heuristic: two snapshots
+     * an observe interval apart can be equal while an advertisement is on the way or was lost,
+     * the periodic refresh of the nodes repairs a lost one later
+     * @return true/false
+     */
+    public boolean isStable(){
+        if (convergenceDetection || pushUpdates && !datagramAdvertisements){
+            return stable;
+        }
+        return previousDVList != null && Utility.equals(previousDVList, nodeDVList);
+    }
+
+    /**
+     * request distance vector and routing table
+     */
+    public void requestDV_RT(){
+        
+        DVsOutdated = false;
+        
+        if (sharedDVs != null){
+            //read the latest DVs
+            nodeDVList = new ArrayList<>();
+            for (int i = 0; i < numNodes; i++){
+                DistanceMatrix DV = Utility.createMatrix(numNodes, infinity);
+                nodeDVList.add(sharedDVs.read(i, 0, DV) > 0 ? DV : null);
+            }
+            return;
+        }
+
+        nodeDVList = toDVList(sendToAll(Message.REQUEST_DV_RT, null));
+    }
+    
+    /**
+     * DVs of the replies of REQUEST_DV_RT
+     * lean nodes reply with their own distances, the DV table of every node is put together
+     * from the replies of all nodes, so the master keeps one table and not one per node
+     * @param replies replies by node index, null if failed
+     * @return DVs by node index, null if failed
+     */
+    private List<DistanceMatrix> toDVList(Message[] replies){
+        
+        List<DistanceMatrix> DVs = new ArrayList<>();
+        
+        if (!leanNodes){
+            for (int i = 0; i < numNodes; i++){
+                DVs.add(replies[i] == null ? null : replies[i].DV);
+            }
+            return DVs;
+        }
+        
+        int size = numNodes;
+        for (Message reply : replies){
+            if (reply != null && reply.vector != null){
+                size = Math.max(size, reply.vector.length);
+            }
+        }
+        
+        //row of a node that did not reply is unknown
+        DistanceMatrix table = Utility.createMatrix(size, infinity);
+        for (int i = 0; i < numNodes; i++){
+            if (replies[i] != null && replies[i].vector != null){
+                System.arraycopy(replies[i].vector, 0, table.values(), table.offset(i), replies[i].vector.length);
+            }
+        }
+        
+        for (int i = 0; i < numNodes; i++){
+            DVs.add(replies[i] == null ? null : table);
+        }
+        return DVs;
+    }
+
+    /**
+     * change cost of link and send the new costs to all nodes,
+     * or only to the two ends of the link with localized changes
+     * the nodes keep the neighbors they start with, so only links of the start network can change
+     * @param fromNode from node index
+     * @param toNode to node index
+     * @param cost new cost
+     * @throws IllegalArgumentException if the nodes were not linked
+     */
+    public void changeCost(int fromNode, int toNode, int cost){
+
+        if (!isLink(startNetwork, numNodes, fromNode, toNode)){
+            throw new IllegalArgumentException("Nodes " + (fromNode + 1) + " and " + (toNode + 1) 
+                    + " are not linked, links cannot be added");
+        }
+
+        //set new cost
+        network = network.withCost(fromNode, toNode, cost);
+        lastCounts = null;
+        stable = false;
+
+        //the nodes find the same infinity in the network and start over with it
+        int needed = Utility.infinity(numNodes, network);
+        boolean longer = needed > infinity;
+        infinity = Math.max(infinity, needed);
+
+        if (localizedChanges && !longer){
+            //the ends recompute their distances, the steps or pushes carry the change to the others
+            sendLinkChange(fromNode, toNode, cost);
+            return;
+        }
+
+        //all nodes get the network, a node that does not keep its distances starts over,
+        //all of them if infinity grows
+        sendToAll(Message.REQUEST_CHANGE_COST, network);
+
+        //all nodes are reset, they push again in the next step
+        advertisePending = pushUpdates;
+    }
+    
+    /**
+     * nodes linked in a network
+     * @param network links of network
+     * @param numNodes number of nodes
+     * @param fromNode from node index
+     * @param toNode to node index
+     * @return true if both nodes exist and have a link
+     */
+    static boolean isLink(SparseNetwork network, int numNodes, int fromNode, int toNode){
+        return fromNode >= 0 && toNode >= 0 && fromNode < numNodes && toNode < numNodes 
+                && network.get(fromNode, toNode) > 0;
+    }
+    
+    /**
+     * send a link change to its two ends and wait for both,
+     * pushing nodes push their DV right after it, the neighbors ignore it if it did not change
+     * @param fromNode from node index
+     * @param toNode to node index
+     * @param cost new cost, 0 removes the link
+     */
+    private void sendLinkChange(int fromNode, int toNode, int cost){
+        
+        List<CompletableFuture<Message>> requests = new ArrayList<>();
+        
+        for (int node : new int[]{fromNode, toNode}){
+            
+            Message message = new Message();
+            message.type = Message.REQUEST_CHANGE_LINK;
+            message.changes = new int[]{fromNode, toNode, cost};
+            
+            if (pushUpdates){
+                Message advertise = new Message();
+                advertise.type = Message.REQUEST_ADVERTISE;
+                Message batch = new Message();
+                batch.type = Message.REQUEST_BATCH;
+                batch.batch = new Message[]{message, advertise};
+                message = batch;
+            }
+            
+            requests.add(transport.requestAsync(nodeInfoList.get(node), message));
+        }
+        
+        for (CompletableFuture<Message> request : requests){
+            try {
+                request.get();
+            } catch (Exception ex) {
+                Logger.getLogger(MasterFrame.class.getName()).log(Level.SEVERE, null, ex);
+            }
+        }
+    }
+
+    /**
+     * send request to all nodes at the same time and wait for all replies
+     * @param type type of request
+     * @param costs costs to send, can be null
+     * @return replies by node index, null if failed
+     */
+    private Message[] sendToAll(final int type, final SparseNetwork costs){
+
+        final Message[] replies = new Message[numNodes];
+
+        //wait for all requests
+        final CountDownLatch done = new CountDownLatch(numNodes);
+
+        for (int i = 0; i < numNodes; i++){
+
+            final int index = i;
+            final NodeInfo info = nodeInfoList.get(i);
+            final long submitTime = System.nanoTime();
+
+            executor.execute(() -> {
+
+                schedulingTime.addAndGet(System.nanoTime() - submitTime);
+
+                try {
+                    //send request
+                    Message message = new Message();
+                    message.type = type;
+                    message.costs = costs;
+
+                    //read response
+                    replies[index] = transport.request(info, message);
+
+                } catch (Exception ex) {
+                    Logger.getLogger(MasterFrame.class.getName()).log(Level.SEVERE, null, ex);
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+
+        try {
+            done.await();
+        } catch (InterruptedException ex) {
+            Logger.getLogger(MasterFrame.class.getName()).log(Level.SEVERE, null, ex);
+        }
+
+        return replies;
+    }
+
+    /**
+     * send a batch to all nodes without waiting for each reply, then wait for all replies
+     * the batches are sent from the executor, the tasks do not wait for the replies
+     * @param round step number of the requests
+     * @param types types of the requests in the batch
+     * @return batch replies by node index, null if failed
+     */
+    private Message[] sendBatchToAll(int round, int... types){
+        
+        final Message[] replies = new Message[numNodes];
+        
+        //wait for all replies
+        final CountDownLatch done = new CountDownLatch(numNodes);
+        
+        for (int i = 0; i < numNodes; i++){
+            
+            final int index = i;
+            final NodeInfo info = nodeInfoList.get(i);
+            final Message message = new Message();
+            message.type = Message.REQUEST_BATCH;
+            message.batch = new Message[types.length];
+            for (int k = 0; k < types.length; k++){
+                message.batch[k] = new Message();
+                message.batch[k].type = types[k];
+                message.batch[k].round = round;
+            }
+            final long submitTime = System.nanoTime();
+            
+            executor.execute(() -> {
+                
+                schedulingTime.addAndGet(System.nanoTime() - submitTime);
+                
+                transport.requestAsync(info, message).whenComplete((reply, ex) -> {
+                    if (ex != null){
+                        Logger.getLogger(MasterFrame.class.getName()).log(Level.SEVERE, null, ex);
+                    }
+                    replies[index] = reply;
+                    done.countDown();
+                });
+            });
+        }
+        
+        try {
+            done.await();
+        } catch (InterruptedException ex) {
+            Logger.getLogger(MasterFrame.class.getName()).log(Level.SEVERE, null, ex);
+        }
+        
+        return replies;
+    }
+
+    /**
+     * stop all nodes and close connections
+     */
+    public void shutdown(){
+
+        transport.close();
+
+        for (NodeServer server : nodeThreadList){
+            server.shutdown();
+        }
+
+        //wait until the ports are free
+        for (NodeServer server : nodeThreadList){
+            try {
+                server.join(1000);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        nodeThreadList.clear();
+        
+        if (sharedDVs != null){
+            sharedDVs.close();
+            sharedDVs = null;
+        }
+    }
+
+    /**
+     * serve nodes by shared event loops instead of a thread per connection,
+     * with persistent connections the loops read the replies of the master and the nodes too
+     * call before start
+     * @param nonBlocking true/false
+     */
+    public void setNonBlocking(boolean nonBlocking) {
+        this.nonBlocking = nonBlocking;
+    }
+
+    /**
+     * nodes push their DV to neighbors when it changes, the master only observes
+     * call before start
+     * @param pushUpdates true/false
+     */
+    public void setPushUpdates(boolean pushUpdates) {
+        this.pushUpdates = pushUpdates;
+    }
+
+    /**
+     * nodes push their DV as UDP datagrams, TCP stays for control messages
+     * needs push updates, call before start
+     * @param datagramAdvertisements true/false
+     */
+    public void setDatagramAdvertisements(boolean datagramAdvertisements) {
+        this.datagramAdvertisements = datagramAdvertisements;
+    }
+
+    /**
+     * send each step to a node as one batch, false: three requests with a barrier after each
+     * @param batchSteps true/false
+     */
+    public void setBatchSteps(boolean batchSteps) {
+        this.batchSteps = batchSteps;
+    }
+
+    /**
+     * nodes share their DVs in memory, neighbors and master read them without requests
+     * call before start
+     * @param sharedMemory true/false
+     * @param file mapped file of the DVs for nodes in other processes, null for memory of this process
+     */
+    public void setSharedMemory(boolean sharedMemory, File file) {
+        this.sharedMemory = sharedMemory;
+        this.sharedFile = file;
+    }
+
+    /**
+     * nodes keep only own distances and the distances of neighbors, O(nodes x degree) each;
+     * the DV tables shown are put together from the distances of all nodes
+     * call before start
+     * @param leanNodes true/false
+     */
+    public void setLeanNodes(boolean leanNodes) {
+        this.leanNodes = leanNodes;
+    }
+
+    /**
+     * nodes relax only the neighbor entries that changed since their last update,
+     * false recomputes from all neighbor entries
+     * call before start
+     * @param incrementalUpdates true/false
+     */
+    public void setIncrementalUpdates(boolean incrementalUpdates) {
+        this.incrementalUpdates = incrementalUpdates;
+    }
+
+    /**
+     * nodes keep their distances when costs change and recompute them from the neighbor DVs,
+     * so they can grow; false: all nodes start over
+     * call before start
+     * @param keepDistances true/false
+     */
+    public void setKeepDistances(boolean keepDistances) {
+        this.keepDistances = keepDistances;
+    }
+
+    /**
+     * split horizon with poison reverse, nodes send own distances routed through a neighbor to it as infinity
+     * call before start
+     * @param poisonReverse true/false
+     */
+    public void setPoisonReverse(boolean poisonReverse) {
+        this.poisonReverse = poisonReverse;
+    }
+
+    /**
+     * nodes route only through feasible successors, a loop-free backup takes over at once
+     * when a link fails or its cost grows; implies keeping the distances
+     * call before start
+     * @param feasibleSuccessors true/false
+     */
+    public void setFeasibleSuccessors(boolean feasibleSuccessors) {
+        this.feasibleSuccessors = feasibleSuccessors;
+    }
+
+    /**
+     * send a link change only to the two ends of the link, they recompute their distances
+     * and the protocol carries the change to the other nodes, instead of sending the network
+     * to all nodes; implies keeping the distances; a change that needs a larger infinity
+     * is still sent to all nodes
+     * call before start
+     * @param localizedChanges true/false
+     */
+    public void setLocalizedChanges(boolean localizedChanges) {
+        this.localizedChanges = localizedChanges;
+    }
+
+    /**
+     * the master detects stability from small replies, the DV version of each node after a step
+     * or the advertisement counts of pushing nodes, and requests the DVs only when they are read;
+     * false: the DVs of all nodes are requested and compared in each step
+     * call before start
+     * @param convergenceDetection true/false
+     */
+    public void setConvergenceDetection(boolean convergenceDetection) {
+        this.convergenceDetection = convergenceDetection;
+    }
+
+    /**
+     * set min-plus kernel of the node updates
+     * call before start
+     * @param kernel kernel
+     */
+    public void setKernel(MinPlus kernel) {
+        this.kernel = kernel;
+    }
+
+    /**
+     * set executor of the requests to nodes and the node services,
+     * the blocking node services do not run on a bounded pool (TaskExecutors.forConnections)
+     * call before start
+     * @param executor executor
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * get time of the last step
+     * @return time (ns)
+     */
+    public long getStepTime() {
+        return stepTime;
+    }
+
+    /**
+     * get thread creation and scheduling overhead of the last step,
+     * summed over all requests
+     * @return time (ns)
+     */
+    public long getSchedulingTime() {
+        return schedulingTime.get();
+    }
+
+    /**
+     * get number of DV messages between nodes so far,
+     * DVs requested by neighbors and advertisements pushed to them
+     * @return number of messages
+     */
+    public long getDVMessages() {
+        long messages = 0;
+        for (NodeServer server : nodeThreadList){
+            messages += server.getDVsSent() + server.getAdvertisementsReceived();
+        }
+        return messages;
+    }
+
+    /**
+     * get number of DV updates of all nodes so far
+     * @return number of updates
+     */
+    public long getUpdates() {
+        long updates = 0;
+        for (NodeServer server : nodeThreadList){
+            updates += server.getUpdates();
+        }
+        return updates;
+    }
+
+    /**
+     * get DVs of the last step, with convergence detection they are requested now
+     * @return node DVs
+     */
+    public List<DistanceMatrix> getNodeDVList() {
+        if (DVsOutdated){
+            requestDV_RT();
+        }
+        return nodeDVList;
+    }
+
+    /**
+     * get next hop of a node to a destination, from its last update
+     * @param node index of node
+     * @param destination index of destination
+     * @return index of the neighbor to forward to, node for itself, -1 if unreachable
+     */
+    public int getNextHop(int node, int destination) {
+        return nodeThreadList.get(node).nextHop(destination + 1) - 1;
+    }
+
+    /**
+     * get current links of network, with the changed costs
+     * @return links of network
+     */
+    public SparseNetwork getNetwork() {
+        return network;
+    }
+
+    /**
+     * get infinity of network
+     * @return infinity
+     */
+    public int getInfinity() {
+        return infinity;
+    }
+
+    /**
+     * get number of nodes
+     * @return number of nodes
+     */
+    public int getNumNodes() {
+        return numNodes;
+    }
+}
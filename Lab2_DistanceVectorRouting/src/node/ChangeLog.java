@@ -0,0 +1,127 @@
+package node;
+
+import java.util.Arrays;
+
+/**
+ * ChangeLog records the entries of neighbor DVs that changed since the last DV update,
+ * the update relaxes only the destinations they affect
+ *
+ * An entry is its index in the values of the neighbor DV (the column in lean mode).
+ * A neighbor whose whole DV was replaced, or that changed too many entries, is relaxed completely
+ */
+class ChangeLog {
+
+    /**
+     * changed entries of each neighbor
+     */
+    private final int[][] entries;
+
+    /**
+     * number of changed entries of each neighbor
+     */
+    private final int[] counts;
+
+    /**
+     * relax the whole DV of each neighbor
+     */
+    private final boolean[] all;
+
+    /**
+     * more changed entries of a neighbor than this relax its whole DV
+     */
+    private int limit;
+
+    /**
+     * constructor
+     * @param neighbors number of neighbors
+     * @param size number of entries of a neighbor DV
+     */
+    ChangeLog(int neighbors, int size) {
+        this.entries = new int[neighbors][8];
+        this.counts = new int[neighbors];
+        this.all = new boolean[neighbors];
+        this.limit = limit(size);
+    }
+
+    /**
+     * past some point the entries are scattered over the whole DV anyway
+     */
+    private static int limit(int size){
+        return Math.max(8, size / 8);
+    }
+
+    /**
+     * record changed entry
+     * @param neighbor index of neighbor
+     * @param entry entry
+     */
+    void add(int neighbor, int entry){
+
+        if (all[neighbor]){
+            return;
+        }
+        if (counts[neighbor] >= limit){
+            addAll(neighbor);
+            return;
+        }
+        if (counts[neighbor] == entries[neighbor].length){
+            entries[neighbor] = Arrays.copyOf(entries[neighbor], counts[neighbor] * 2);
+        }
+        entries[neighbor][counts[neighbor]++] = entry;
+    }
+
+    /**
+     * record that the whole DV of neighbor may have changed
+     * @param neighbor index of neighbor
+     */
+    void addAll(int neighbor){
+        all[neighbor] = true;
+        counts[neighbor] = 0;
+    }
+
+    /**
+     * the DVs have more entries, recorded entries of the old size are relaxed completely
+     * @param size number of entries of a neighbor DV
+     */
+    void resize(int size){
+        limit = limit(size);
+        for (int i = 0; i < counts.length; i++){
+            if (counts[i] > 0){
+                addAll(i);
+            }
+        }
+    }
+
+    boolean isAll(int neighbor){
+        return all[neighbor];
+    }
+
+    int count(int neighbor){
+        return counts[neighbor];
+    }
+
+    int entry(int neighbor, int k){
+        return entries[neighbor][k];
+    }
+
+    /**
+     * nothing changed since the last update
+     * @return true/false
+     */
+    boolean isEmpty(){
+        for (int i = 0; i < counts.length; i++){
+            if (all[i] || counts[i] > 0){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * the update relaxed all recorded entries
+     */
+    void clear(){
+        Arrays.fill(counts, 0);
+        Arrays.fill(all, false);
+    }
+}
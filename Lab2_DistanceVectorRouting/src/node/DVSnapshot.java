@@ -0,0 +1,49 @@
+package node;
+
+import common.DistanceMatrix;
+
+/**
+ * state of a node after a change, published for readers that do not lock the node
+ * an update builds new tables and publishes a new snapshot,
+ * nothing in a published snapshot is changed later
+ */
+final class DVSnapshot {
+
+    /**
+     * snapshot before the first calculation
+     */
+    static final DVSnapshot EMPTY = new DVSnapshot(0, new DistanceMatrix(0), null, new DistanceMatrix(0), new int[0]);
+
+    /**
+     * DV version
+     */
+    final long version;
+
+    /**
+     * Distance Vector table, null in lean mode
+     */
+    final DistanceMatrix DV;
+
+    /**
+     * own distances, lean mode
+     */
+    final int[] vector;
+
+    /**
+     * routing table, null in lean mode
+     */
+    final DistanceMatrix routingTable;
+
+    /**
+     * next hop to each destination (node number)
+     */
+    final int[] nextHops;
+
+    DVSnapshot(long version, DistanceMatrix DV, int[] vector, DistanceMatrix routingTable, int[] nextHops) {
+        this.version = version;
+        this.DV = DV;
+        this.vector = vector;
+        this.routingTable = routingTable;
+        this.nextHops = nextHops;
+    }
+}
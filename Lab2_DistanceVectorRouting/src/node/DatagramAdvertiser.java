@@ -0,0 +1,129 @@
+package node;
+
+import common.BinaryCodec;
+import common.Message;
+import common.MessageCodec;
+import common.NodeInfo;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * DatagramAdvertiser sends and receives DV advertisements as UDP datagrams
+ * on the UDP port with the same number as the TCP port of the node
+ * 
+ * datagram: codec id (byte), encoded message
+ * 
+ * A lost datagram is not resent, the node advertises its DV again periodically
+ * and the neighbor keeps only versions newer than the one it has
+ */
+class DatagramAdvertiser extends Thread {
+    
+    /**
+     * largest UDP payload
+     */
+    static final int MAX_DATAGRAM = 65507;
+    
+    /**
+     * node of the advertiser
+     */
+    private final NodeServer nodeServer;
+    
+    /**
+     * UDP channel
+     */
+    private final DatagramChannel channel;
+    
+    /**
+     * constructor
+     * bind UDP port
+     * @param nodeServer node
+     * @param port UDP port
+     * @throws IOException 
+     */
+    DatagramAdvertiser(NodeServer nodeServer, int port) throws IOException {
+        
+        super("DatagramAdvertiser-" + port);
+        this.nodeServer = nodeServer;
+        
+        channel = DatagramChannel.open();
+        channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        channel.setOption(StandardSocketOptions.SO_RCVBUF, 4 * 1024 * 1024);
+        channel.bind(new InetSocketAddress(port));
+        
+        setDaemon(true);
+    }
+    
+    /**
+     * send advertisement to neighbors
+     * @param message advertisement
+     * @param neighbors neighbors
+     * @return false if the message does not fit in a datagram
+     * @throws IOException 
+     */
+    boolean send(Message message, List<NodeInfo> neighbors) throws IOException {
+        
+        byte[] bytes = BinaryCodec.INSTANCE.encode(message);
+        if (bytes.length + 1 > MAX_DATAGRAM){
+            return false;
+        }
+        
+        ByteBuffer datagram = ByteBuffer.allocate(bytes.length + 1);
+        datagram.put(BinaryCodec.INSTANCE.getId()).put(bytes);
+        
+        for (NodeInfo neighbor : neighbors){
+            datagram.rewind();
+            channel.send(datagram, new InetSocketAddress(neighbor.getAddress(), neighbor.getPort()));
+        }
+        return true;
+    }
+    
+    /**
+     * receive advertisements
+     */
+    public void run(){
+        
+        ByteBuffer buffer = ByteBuffer.allocate(MAX_DATAGRAM);
+        
+        while (channel.isOpen()){
+            
+            try {
+                buffer.clear();
+                channel.receive(buffer);
+                buffer.flip();
+                
+                MessageCodec codec = MessageCodec.forId(buffer.get() & 0xFF);
+                byte[] bytes = new byte[buffer.remaining()];
+                buffer.get(bytes);
+                
+                Message message = codec.decode(bytes, bytes.length);
+                if (message.type == Message.ADVERTISE_DV){
+                    nodeServer.receiveAdvertisement(message);
+                }
+                
+            } catch (ClosedChannelException ex) {
+                return;
+            } catch (IOException | RuntimeException ex) {
+                //drop malformed datagram, keep receiving
+                Logger.getLogger(DatagramAdvertiser.class.getName()).log(Level.WARNING, null, ex);
+            }
+        }
+    }
+    
+    /**
+     * close UDP port
+     */
+    void close(){
+        try {
+            channel.close();
+        } catch (IOException ex) {
+            //ignore
+        }
+    }
+}
@@ -0,0 +1,464 @@
+package node;
+
+import common.Message;
+import common.MessageCodec;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * EventLoop is a thread that serves the connections of many nodes with one Selector
+ * Requests are handled on the loop, only the replies that wait for neighbors
+ * are completed later and handed back to the loop
+ * The loop also reads the replies on the connections that nodes open to their neighbors (LoopTransport)
+ *
+ * frame: codec id (byte), length (int), encoded message (same as MessageChannel)
+ */
+class EventLoop extends Thread {
+
+    /**
+     * largest frame accepted
+     */
+    private static final int MAX_FRAME = 64 * 1024 * 1024;
+
+    /**
+     * selector of the loop
+     */
+    private final Selector selector;
+
+    /**
+     * tasks from other threads, run on the loop
+     */
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+    /**
+     * group of the loop, gets accepted connections
+     */
+    private final EventLoopGroup group;
+
+    /**
+     * constructor
+     * @param group group of the loop
+     * @param name thread name
+     * @throws IOException
+     */
+    EventLoop(EventLoopGroup group, String name) throws IOException {
+        super(name);
+        this.group = group;
+        this.selector = Selector.open();
+        setDaemon(true);
+    }
+
+    /**
+     * run task on the loop
+     * @param task task
+     */
+    void execute(Runnable task){
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    /**
+     * is current thread the loop
+     * @return true/false
+     */
+    boolean inLoop(){
+        return Thread.currentThread() == this;
+    }
+
+    /**
+     * listen on server channel
+     * @param serverChannel server channel, non-blocking
+     * @param binding node that the channel belongs to
+     */
+    void listen(final ServerSocketChannel serverChannel, final EventLoopGroup.Binding binding){
+        execute(() -> {
+            try {
+                serverChannel.register(selector, SelectionKey.OP_ACCEPT, binding);
+            } catch (IOException ex) {
+                Logger.getLogger(EventLoop.class.getName()).log(Level.SEVERE, null, ex);
+            }
+        });
+    }
+
+    /**
+     * serve accepted connection
+     * @param socketChannel accepted channel
+     * @param binding node that the channel belongs to
+     */
+    void serve(final SocketChannel socketChannel, final EventLoopGroup.Binding binding){
+        execute(() -> {
+            try {
+                Session session = new Session(socketChannel, binding);
+                session.key = socketChannel.register(selector, SelectionKey.OP_READ, session);
+                binding.sessions.add(session);
+            } catch (IOException ex) {
+                close(socketChannel);
+            }
+        });
+    }
+
+    /**
+     * use connected channel for requests, the loop reads the replies
+     * @param socketChannel connected channel, non-blocking
+     * @return session, requests can be sent before it is registered
+     */
+    Session connect(final SocketChannel socketChannel){
+        final Session session = new Session(socketChannel, null);
+        execute(() -> {
+            try {
+                session.key = socketChannel.register(selector, SelectionKey.OP_READ, session);
+                session.flush();
+            } catch (IOException ex) {
+                session.close();
+            }
+        });
+        return session;
+    }
+
+    public void run(){
+
+        while (true){
+
+            try {
+                selector.select();
+
+                //tasks from other threads
+                Runnable task;
+                while ((task = tasks.poll()) != null){
+                    task.run();
+                }
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()){
+
+                    SelectionKey key = keys.next();
+                    keys.remove();
+
+                    if (!key.isValid()){
+                        continue;
+                    }
+
+                    if (key.isAcceptable()){
+                        accept(key);
+                    }else{
+                        Session session = (Session)key.attachment();
+                        if (key.isReadable()){
+                            session.read();
+                        }
+                        if (key.isValid() && key.isWritable()){
+                            session.flush();
+                        }
+                    }
+                }
+            } catch (Exception ex) {
+                Logger.getLogger(EventLoop.class.getName()).log(Level.SEVERE, null, ex);
+            }
+        }
+    }
+
+    /**
+     * accept connections, hand them to the loops of the group
+     * @param key key of server channel
+     */
+    private void accept(SelectionKey key){
+
+        ServerSocketChannel serverChannel = (ServerSocketChannel)key.channel();
+        EventLoopGroup.Binding binding = (EventLoopGroup.Binding)key.attachment();
+
+        try {
+            SocketChannel socketChannel;
+            while ((socketChannel = serverChannel.accept()) != null){
+                socketChannel.configureBlocking(false);
+                socketChannel.socket().setTcpNoDelay(true);
+                group.next().serve(socketChannel, binding);
+            }
+        } catch (IOException ex) {
+            if (serverChannel.isOpen()){
+                Logger.getLogger(EventLoop.class.getName()).log(Level.SEVERE, null, ex);
+            }
+        }
+    }
+
+    /**
+     * close channel quietly
+     */
+    private static void close(SocketChannel socketChannel){
+        try {
+            socketChannel.close();
+        } catch (IOException ex) {
+            //ignore
+        }
+    }
+
+    /**
+     * state of one connection
+     */
+    class Session {
+
+        /**
+         * channel of connection
+         */
+        private final SocketChannel socketChannel;
+
+        /**
+         * node the connection belongs to, null for a connection to a node
+         */
+        private final EventLoopGroup.Binding binding;
+
+        /**
+         * requests waiting for reply by request id, connection to a node
+         */
+        private final Map<Integer, CompletableFuture<Message>> pending = new ConcurrentHashMap<>();
+
+        /**
+         * next request id, connection to a node
+         */
+        private final AtomicInteger nextRequestId = new AtomicInteger();
+
+        /**
+         * is closed
+         */
+        private volatile boolean closed = false;
+
+        /**
+         * key in selector
+         */
+        private SelectionKey key;
+
+        /**
+         * incoming bytes, in write mode
+         */
+        private ByteBuffer in = ByteBuffer.allocate(1024);
+
+        /**
+         * outgoing frames
+         */
+        private final Queue<ByteBuffer> out = new ArrayDeque<>();
+
+        Session(SocketChannel socketChannel, EventLoopGroup.Binding binding){
+            this.socketChannel = socketChannel;
+            this.binding = binding;
+        }
+
+        /**
+         * read available bytes and handle the complete frames
+         */
+        void read(){
+
+            try {
+                if (socketChannel.read(in) < 0){
+                    close();
+                    return;
+                }
+
+                in.flip();
+
+                while (in.remaining() >= 5){
+
+                    int start = in.position();
+                    MessageCodec codec = MessageCodec.forId(in.get(start) & 0xFF);
+                    int length = in.getInt(start + 1);
+                    if (length < 0 || length > MAX_FRAME){
+                        throw new IOException("Invalid frame length " + length);
+                    }
+
+                    if (in.remaining() < 5 + length){
+                        //wait for the rest of frame, grow if it does not fit
+                        if (5 + length > in.capacity()){
+                            ByteBuffer bigger = ByteBuffer.allocate(5 + length);
+                            bigger.put(in);
+                            in = bigger;
+                            return;
+                        }
+                        break;
+                    }
+
+                    byte[] bytes = new byte[length];
+                    in.position(start + 5);
+                    in.get(bytes);
+                    Message message;
+                    try {
+                        message = codec.decode(bytes, length);
+                    } catch (RuntimeException ex) {
+                        //malformed frame, like a bad length
+                        throw new IOException("Malformed frame", ex);
+                    }
+
+                    if (binding == null){
+                        complete(message);
+                    }else if (!dispatch(message, codec)){
+                        return;
+                    }
+                }
+
+                in.compact();
+
+            } catch (IOException ex) {
+                close();
+            }
+        }
+
+        /**
+         * send request, connection to a node
+         * @param message request
+         * @param codec codec of request
+         * @return reply, completed when the loop reads it
+         */
+        CompletableFuture<Message> request(Message message, MessageCodec codec){
+
+            final int requestId = nextRequestId.incrementAndGet();
+            message.requestId = requestId;
+
+            CompletableFuture<Message> reply = new CompletableFuture<>();
+            pending.put(requestId, reply);
+            reply.whenComplete((result, ex) -> pending.remove(requestId));
+
+            //close fails the requests it finds, later ones fail here
+            if (closed){
+                reply.completeExceptionally(new IOException("Connection closed"));
+                return reply;
+            }
+            send(message, codec);
+            return reply;
+        }
+
+        /**
+         * hand reply to the waiting request
+         * @param reply reply
+         */
+        private void complete(Message reply){
+            CompletableFuture<Message> request = pending.get(reply.requestId);
+            if (request != null){
+                request.complete(reply);
+            }
+        }
+
+        /**
+         * is closed
+         * @return true/false
+         */
+        boolean isClosed(){
+            return closed;
+        }
+
+        /**
+         * handle request, the reply is sent when it is completed
+         * a request that fails right away closes the connection, there is no error reply
+         * @param message request
+         * @param codec codec of request
+         * @return false if the connection was closed
+         */
+        private boolean dispatch(Message message, final MessageCodec codec){
+
+            CompletableFuture<Message> reply;
+            try {
+                reply = binding.handler.handle(message);
+            } catch (RuntimeException ex) {
+                Logger.getLogger(EventLoop.class.getName()).log(Level.SEVERE, null, ex);
+                close();
+                return false;
+            }
+
+            reply.whenComplete((result, ex) -> {
+                if (ex != null){
+                    Logger.getLogger(EventLoop.class.getName()).log(Level.SEVERE, null, ex);
+                    close();
+                    return;
+                }
+                send(result, codec);
+            });
+            return true;
+        }
+
+        /**
+         * send reply
+         * @param reply reply
+         * @param codec codec
+         */
+        private void send(Message reply, MessageCodec codec){
+
+            final ByteBuffer frame;
+            try {
+                byte[] bytes = codec.encode(reply);
+                frame = ByteBuffer.allocate(5 + bytes.length);
+                frame.put(codec.getId()).putInt(bytes.length).put(bytes);
+                frame.flip();
+            } catch (IOException ex) {
+                Logger.getLogger(EventLoop.class.getName()).log(Level.SEVERE, null, ex);
+                close();
+                return;
+            }
+
+            if (inLoop()){
+                out.add(frame);
+                flush();
+            }else{
+                execute(() -> {
+                    out.add(frame);
+                    flush();
+                });
+            }
+        }
+
+        /**
+         * write queued frames, wait for OP_WRITE if the socket is full
+         */
+        void flush(){
+
+            if (key == null){
+                //not registered yet, the registration flushes
+                return;
+            }
+
+            try {
+                while (!out.isEmpty()){
+                    ByteBuffer frame = out.peek();
+                    socketChannel.write(frame);
+                    if (frame.hasRemaining()){
+                        key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                        return;
+                    }
+                    out.poll();
+                }
+                if (key.isValid()){
+                    key.interestOps(SelectionKey.OP_READ);
+                }
+            } catch (Exception ex) {
+                close();
+            }
+        }
+
+        /**
+         * close connection, fail the requests waiting for reply
+         */
+        void close(){
+            closed = true;
+            if (binding != null){
+                binding.sessions.remove(this);
+            }
+            if (key != null){
+                key.cancel();
+            }
+            EventLoop.close(socketChannel);
+
+            IOException ex = new IOException("Connection closed");
+            for (CompletableFuture<Message> request : pending.values()){
+                request.completeExceptionally(ex);
+            }
+        }
+    }
+}
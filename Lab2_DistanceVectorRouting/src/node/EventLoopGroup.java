@@ -0,0 +1,161 @@
+package node;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * EventLoopGroup is a small number of event loops
+ * that serve the ports of all non-blocking nodes in the JVM
+ */
+class EventLoopGroup {
+
+    /**
+     * group shared by all nodes, created on first use
+     */
+    private static EventLoopGroup shared;
+
+    /**
+     * loops
+     */
+    private final EventLoop[] loops;
+
+    /**
+     * next loop to get a connection
+     */
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * constructor
+     * @param numLoops number of loops
+     * @throws IOException
+     */
+    EventLoopGroup(int numLoops) throws IOException {
+        loops = new EventLoop[numLoops];
+        for (int i = 0; i < numLoops; i++){
+            loops[i] = new EventLoop(this, "EventLoop-" + (i + 1));
+            loops[i].start();
+        }
+    }
+
+    /**
+     * get group shared by all nodes
+     * number of loops is -Ddvr.eventLoops, by default half of the processors
+     * @return group
+     * @throws IOException
+     */
+    static synchronized EventLoopGroup shared() throws IOException {
+        if (shared == null){
+            int defaultLoops = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+            shared = new EventLoopGroup(Integer.getInteger("dvr.eventLoops", defaultLoops));
+        }
+        return shared;
+    }
+
+    /**
+     * get next loop, round robin
+     * @return loop
+     */
+    EventLoop next(){
+        return loops[Math.floorMod(next.getAndIncrement(), loops.length)];
+    }
+
+    /**
+     * listen on port of node
+     * @param port port
+     * @param handler handler of the node requests
+     * @return binding, close it to stop the node
+     * @throws IOException
+     */
+    Binding bind(int port, RequestHandler handler) throws IOException {
+
+        ServerSocketChannel serverChannel = ServerSocketChannel.open();
+        serverChannel.socket().setReuseAddress(true);
+        serverChannel.bind(new InetSocketAddress(port));
+        serverChannel.configureBlocking(false);
+
+        EventLoop loop = next();
+        Binding binding = new Binding(serverChannel, handler, loop);
+        loop.listen(serverChannel, binding);
+        return binding;
+    }
+
+    /**
+     * connect to node, a loop of the group reads the replies
+     * @param address address of node
+     * @param port port of node
+     * @return session to send requests on
+     * @throws IOException
+     */
+    EventLoop.Session connect(String address, int port) throws IOException {
+
+        SocketChannel socketChannel = SocketChannel.open(new InetSocketAddress(address, port));
+        try {
+            socketChannel.socket().setTcpNoDelay(true);
+            socketChannel.configureBlocking(false);
+        } catch (IOException ex) {
+            socketChannel.close();
+            throw ex;
+        }
+        return next().connect(socketChannel);
+    }
+
+    /**
+     * port of a node that is served by the group
+     */
+    static class Binding {
+
+        /**
+         * server channel
+         */
+        private final ServerSocketChannel serverChannel;
+
+        /**
+         * handler of the node requests
+         */
+        final RequestHandler handler;
+
+        /**
+         * loop of the server channel
+         */
+        private final EventLoop loop;
+
+        /**
+         * open connections
+         */
+        final Set<EventLoop.Session> sessions = ConcurrentHashMap.newKeySet();
+
+        Binding(ServerSocketChannel serverChannel, RequestHandler handler, EventLoop loop){
+            this.serverChannel = serverChannel;
+            this.handler = handler;
+            this.loop = loop;
+        }
+
+        /**
+         * stop listening and close open connections
+         * the port is free when it returns: a channel registered with a selector
+         * keeps its port until the selector selects again, so the loop is woken and waited for
+         */
+        void close(){
+            try {
+                serverChannel.close();
+                CountDownLatch selected = new CountDownLatch(1);
+                loop.execute(selected::countDown);
+                selected.await(1, TimeUnit.SECONDS);
+            } catch (IOException ex) {
+                //ignore
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            for (EventLoop.Session session : sessions){
+                session.close();
+            }
+        }
+    }
+}
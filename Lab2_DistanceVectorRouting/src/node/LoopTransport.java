@@ -0,0 +1,113 @@
+package node;
+
+import common.Message;
+import common.MessageCodec;
+import common.NodeInfo;
+import common.Transport;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * LoopTransport keeps one long-lived connection per node like PooledTransport,
+ * the replies are read by the event loops of the non-blocking nodes instead of a thread per connection
+ */
+public class LoopTransport implements Transport {
+
+    /**
+     * connections by address:port
+     */
+    private final Map<String, EventLoop.Session> connections = new ConcurrentHashMap<>();
+
+    /**
+     * codec of requests
+     */
+    private final MessageCodec codec;
+
+    /**
+     * constructor
+     * @param codec codec of requests
+     */
+    public LoopTransport(MessageCodec codec) {
+        this.codec = codec;
+    }
+
+    @Override
+    public Message request(NodeInfo to, Message message) throws IOException {
+
+        try {
+            return requestAsync(to, message).get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException ex) {
+            throw ex.getCause() instanceof IOException ? (IOException)ex.getCause() : new IOException(ex.getCause());
+        }
+    }
+
+    @Override
+    public CompletableFuture<Message> requestAsync(NodeInfo to, Message message) {
+
+        final EventLoop.Session connection;
+        try {
+            connection = connect(to);
+        } catch (IOException ex) {
+            CompletableFuture<Message> failed = new CompletableFuture<>();
+            failed.completeExceptionally(ex);
+            return failed;
+        }
+
+        CompletableFuture<Message> reply = connection.request(message, codec);
+        reply.whenComplete((result, ex) -> {
+            if (ex != null){
+                //drop broken connection, next request reconnects
+                connections.remove(key(to), connection);
+                connection.close();
+            }
+        });
+        return reply;
+    }
+
+    /**
+     * get the connection to node, connect if there is none
+     * @param to node
+     * @return connection
+     * @throws IOException
+     */
+    private EventLoop.Session connect(NodeInfo to) throws IOException {
+
+        String key = key(to);
+        EventLoop.Session connection = connections.get(key);
+
+        if (connection == null || connection.isClosed()){
+            synchronized (this){
+                connection = connections.get(key);
+                if (connection == null || connection.isClosed()){
+                    connection = EventLoopGroup.shared().connect(to.getAddress(), to.getPort());
+                    connections.put(key, connection);
+                }
+            }
+        }
+        return connection;
+    }
+
+    /**
+     * key of node
+     * @param info node
+     * @return address:port
+     */
+    private static String key(NodeInfo info){
+        return info.getAddress() + ":" + info.getPort();
+    }
+
+    @Override
+    public void close() {
+        for (EventLoop.Session connection : connections.values()){
+            connection.close();
+        }
+        connections.clear();
+    }
+}
@@ -1,8 +1,11 @@
 package node;
 
-import common.Configuration;
+import common.DistanceMatrix;
 import common.NodeInfo;
+import common.SparseNetwork;
+import common.Utility;
 import java.util.ArrayList;
+import java.util.Arrays;
 import master.MasterFrame;
 import java.util.List;
 
@@ -17,12 +20,28 @@ public class NodeData {
     /**
      * initial cost of network
      */
-    int[][] network;
+    SparseNetwork network;
     
     /**
      * Distance Vector table
      */
-    int[][] DV = new int[Configuration.MAX_NODES][Configuration.MAX_NODES];
+    DistanceMatrix DV = new DistanceMatrix(0);
+    
+    /**
+     * keep only own distances and the distances of neighbors (lean mode),
+     * the vectors are used instead of DV and DVNeigbhors
+     */
+    boolean lean = false;
+    
+    /**
+     * own distances, the own row of DV, lean mode
+     */
+    int[] vector = new int[0];
+    
+    /**
+     * own distances of neighbors, lean mode
+     */
+    List<int[]> neighborVectors;
     
     /**
      * neighbors addresses/ports
@@ -32,10 +51,188 @@ public class NodeData {
     /**
      * Distance Vector tables of neighbors
      */
-    List<int[][]> DVNeigbhors;
+    List<DistanceMatrix> DVNeigbhors;
+    
+    /**
+     * routing table, the own row holds the next hops (not used in lean mode)
+     */
+    DistanceMatrix routingTable = new DistanceMatrix(0);
+    
+    /**
+     * next hop to each destination (node number), own node number for itself, 0 if unreachable
+     */
+    int[] nextHops = new int[0];
+    
+    /**
+     * feasible distance to each destination, the shortest own distance since the destination was last active;
+     * a neighbor that reports less is a feasible successor, its route does not lead back to this node
+     */
+    int[] feasibleDistances = new int[0];
+    
+    /**
+     * update in which each destination became active, waiting for the neighbors to learn
+     * that it has no feasible successor; 0 if passive
+     */
+    int[] activeSince = new int[0];
+    
+    /**
+     * number of DV updates
+     */
+    int updates = 0;
+    
+    /**
+     * DV version, increased whenever an entry of DV changes
+     */
+    long version = 0;
+    
+    /**
+     * version in which each DV entry changed last, row by row like DV (entry of vector, lean mode)
+     */
+    long[] entryVersions = new long[0];
+    
+    /**
+     * costs of links changed since the last DV update, all own distances are recomputed
+     */
+    boolean costsChanged = false;
+    
+    /**
+     * neighbor entries changed since the last DV update
+     */
+    ChangeLog neighborChanges = new ChangeLog(0, 0);
+    
+    /**
+     * DV versions of neighbors, 0 if unknown
+     */
+    long[] neighborVersions;
+    
+    /**
+     * time of the last DV request to each neighbor (ns), -1 if it timed out or failed
+     */
+    long[] neighborLatencies;
+    
+    /**
+     * step of the last DV update, 0 if none
+     */
+    int round = 0;
+    
+    /**
+     * DV before the last update of a step and its version,
+     * DV requests of the same step get it
+     */
+    DistanceMatrix previousDV;
+    int[] previousVector;
+    long previousVersion;
+    int[] previousHops;
+    
+    /**
+     * grow the tables to more nodes
+     * @param size number of nodes
+     * @param infinity cost of the new DV entries
+     */
+    void resize(int size, int infinity){
+        
+        if (size > nextHops.length){
+            nextHops = Arrays.copyOf(nextHops, size);
+            activeSince = Arrays.copyOf(activeSince, size);
+            feasibleDistances = Utility.resizeVector(feasibleDistances, size, infinity);
+        }
+        
+        if (lean){
+            if (size > vector.length){
+                vector = Utility.resizeVector(vector, size, infinity);
+                entryVersions = Arrays.copyOf(entryVersions, size);
+                previousVector = null;
+            }
+            return;
+        }
+        
+        int oldSize = DV.size();
+        if (size <= oldSize){
+            return;
+        }
+        
+        DV = DV.resize(size, infinity);
+        routingTable = routingTable.resize(size, 0);
+        
+        long[] versions = new long[size * size];
+        for (int i = 0; i < oldSize; i++){
+            System.arraycopy(entryVersions, i * oldSize, versions, i * size, oldSize);
+        }
+        entryVersions = versions;
+        
+        previousDV = null;
+    }
+    
+    /**
+     * a destination waits for the neighbors, feasible successors
+     * @return true if a destination is active
+     */
+    boolean anyActive(){
+        for (int since : activeSince){
+            if (since > 0){
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * stamp all entries of DV or vector with a new version,
+     * neighbors that keep their copy get all entries again
+     */
+    void publishAll(){
+        version++;
+        Arrays.fill(entryVersions, version);
+    }
+    
+    /**
+     * get entries changed after a version
+     * entries changed later are included too, with their value in the DV
+     * @param since version known by the caller
+     * @param DV current or previous DV
+     * @return (row, column, cost) triples
+     */
+    int[] changesSince(long since, DistanceMatrix DV){
+        return changesSince(since, DV.values(), DV.size(), 0);
+    }
+    
+    /**
+     * get entries of vector changed after a version, lean mode
+     * @param since version known by the caller
+     * @param vector current or previous vector
+     * @param row row of vector in the DV (node index)
+     * @return (row, column, cost) triples
+     */
+    int[] changesSince(long since, int[] vector, int row){
+        return changesSince(since, vector, vector.length, row);
+    }
     
     /**
-     * routing table
+     * get entries changed after a version
+     * @param since version known by the caller
+     * @param values entries, row by row
+     * @param size length of rows
+     * @param firstRow row of the first entry
+     * @return (row, column, cost) triples
      */
-    int[][] routingTable = new int[Configuration.MAX_NODES][Configuration.MAX_NODES];
+    private int[] changesSince(long since, int[] values, int size, int firstRow){
+        
+        int count = 0;
+        for (int k = 0; k < entryVersions.length; k++){
+            if (entryVersions[k] > since){
+                count++;
+            }
+        }
+        
+        int[] changes = new int[count * 3];
+        int n = 0;
+        for (int k = 0; k < entryVersions.length; k++){
+            if (entryVersions[k] > since){
+                changes[n++] = firstRow + k / size;
+                changes[n++] = k % size;
+                changes[n++] = values[k];
+            }
+        }
+        return changes;
+    }
 }
@@ -1,13 +1,33 @@
 package node;
 
 import common.Configuration;
+import common.DistanceMatrix;
+import common.Message;
+import common.MessageCodec;
+import common.MinPlus;
 import common.NodeInfo;
+import common.SharedDVRegion;
+import common.SparseNetwork;
+import common.Transport;
+import common.TaskExecutors;
 import common.Utility;
 import java.io.IOException;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import javax.swing.JOptionPane;
 
 /**
@@ -17,6 +37,15 @@ import javax.swing.JOptionPane;
  */
 public class NodeServer extends Thread{
     
+    /**
+     * timer of neighbor timeouts and periodic advertisements
+     */
+    static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "NodeTimer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
     NodeData data = new NodeData();
     
     /**
@@ -24,9 +53,189 @@ public class NodeServer extends Thread{
      */
     private int numNodes;
     
-    public NodeServer(int numNodes, NodeInfo nodeInfo, int[][] network, List<NodeInfo> neighbors){       
+    /**
+     * infinity of the network, grows when a cost change makes a path longer
+     */
+    private volatile int infinity;
+    
+    /**
+     * transport to request neighbors
+     */
+    Transport transport;
+    
+    /**
+     * handler of requests
+     */
+    final RequestHandler handler = new RequestHandler(this);
+    
+    /**
+     * runs a NodeService for each connection
+     */
+    private Executor executor = TaskExecutors.threadPerTask();
+    
+    /**
+     * serve with the shared event loops instead of a thread per connection
+     */
+    private boolean nonBlocking = false;
+    
+    /**
+     * relax only the neighbor entries that changed since the last update
+     */
+    private boolean incremental = true;
+    
+    /**
+     * keep the distances when costs change and recompute them from the neighbor DVs,
+     * distances can grow; false starts over with calculate
+     */
+    private boolean keepDistances = false;
+    
+    /**
+     * split horizon with poison reverse: own distances routed through a neighbor are sent to it as infinity
+     */
+    private boolean poisonReverse = false;
+    
+    /**
+     * route only through feasible successors, neighbors that report less than the feasible distance,
+     * keeps the distances when costs change
+     */
+    private boolean feasibleSuccessors = false;
+    
+    /**
+     * kernel of the updates that relax whole neighbor DVs
+     */
+    private MinPlus kernel = MinPlus.of(MinPlus.DEFAULT_WIDTH);
+    
+    /**
+     * server socket
+     */
+    private ServerSocket serverSocket;
+    
+    /**
+     * port served by event loops, non-blocking mode
+     */
+    private EventLoopGroup.Binding binding;
+    
+    /**
+     * time to wait for the DV of a neighbor (ms)
+     */
+    private long neighborTimeout = Long.getLong("dvr.neighborTimeout", Configuration.NEIGHBOR_TIMEOUT);
+    
+    /**
+     * send DV advertisements as UDP datagrams instead of TCP requests
+     */
+    private boolean datagramAdvertisements = false;
+    
+    /**
+     * UDP advertisements, datagram mode
+     */
+    private DatagramAdvertiser datagrams;
+    
+    /**
+     * periodic advertisement, datagram mode
+     */
+    private ScheduledFuture<?> refresh;
+    
+    /**
+     * next update while destinations are active, push mode
+     */
+    private ScheduledFuture<?> recheck;
+    
+    /**
+     * DVs of all nodes in shared memory, null if DVs are requested
+     */
+    SharedDVRegion sharedDVs;
+    
+    /**
+     * state of the last change, replaced and never changed so it is read without locking
+     */
+    private volatile DVSnapshot snapshot = DVSnapshot.EMPTY;
+    
+    /**
+     * number of advertisements received from neighbors,
+     * counted when the update they start is queued
+     */
+    private final AtomicLong advertisementsReceived = new AtomicLong();
+    
+    /**
+     * number of advertisements sent to neighbors over TCP, a failed one is not counted
+     */
+    private final AtomicLong advertisementsSent = new AtomicLong();
+    
+    /**
+     * updates and pushes queued or running, push mode; a node without is passive
+     */
+    private final AtomicInteger pendingTasks = new AtomicInteger();
+    
+    /**
+     * a destination waits for the neighbors after the last update, feasible successors;
+     * read without locking by the replies to the master
+     */
+    private volatile boolean active = false;
+    
+    /**
+     * a push of the DV is queued and has not started
+     */
+    private final AtomicBoolean pushPending = new AtomicBoolean();
+    
+    /**
+     * an update with the pushed neighbor DVs is queued and has not started
+     */
+    private final AtomicBoolean updatePending = new AtomicBoolean();
+    
+    /**
+     * number of DVs sent to neighbors that requested them
+     */
+    final AtomicLong DVsSent = new AtomicLong();
+    
+    /**
+     * number of DV updates
+     */
+    private final AtomicLong updates = new AtomicLong();
+    
+    /**
+     * is running
+     */
+    private volatile boolean running = true;
+    
+    public NodeServer(int numNodes, NodeInfo nodeInfo, SparseNetwork network, List<NodeInfo> neighbors){       
+        this(numNodes, nodeInfo, network, neighbors, Transport.create(true, MessageCodec.forName("binary")));
+    }
+    
+    public NodeServer(int numNodes, NodeInfo nodeInfo, SparseNetwork network, List<NodeInfo> neighbors, Transport transport){       
+        this(numNodes, Utility.infinity(numNodes, network), nodeInfo, network, neighbors, transport);
+    }
+    
+    /**
+     * constructor
+     * @param numNodes number of nodes, grows when a network with more nodes is calculated
+     * @param infinity infinity of the network
+     * @param nodeInfo address/port of this node
+     * @param network cost of network
+     * @param neighbors neighbors addresses/ports
+     * @param transport transport to request neighbors
+     */
+    public NodeServer(int numNodes, int infinity, NodeInfo nodeInfo, SparseNetwork network, List<NodeInfo> neighbors, Transport transport){       
+        this(numNodes, infinity, nodeInfo, network, neighbors, transport, false);
+    }
+    
+    /**
+     * constructor
+     * @param numNodes number of nodes, grows when a network with more nodes is calculated
+     * @param infinity infinity of the network
+     * @param nodeInfo address/port of this node
+     * @param network cost of network
+     * @param neighbors neighbors addresses/ports
+     * @param transport transport to request neighbors
+     * @param lean keep only own distances and the distances of neighbors, not the DV table;
+     *             all nodes of a network must be lean or not
+     */
+    public NodeServer(int numNodes, int infinity, NodeInfo nodeInfo, SparseNetwork network, List<NodeInfo> neighbors, 
+            Transport transport, boolean lean){       
         
         this.numNodes = numNodes;
+        this.infinity = infinity;
+        this.transport = transport;
+        data.lean = lean;
         data.nodeInfo = nodeInfo;
         data.neighbors = neighbors;
         //setup data for node
@@ -37,56 +246,1222 @@ public class NodeServer extends Thread{
      * setup data for node
      * calculate distance vector
      */
-    public void calculate(int[][] network){
+    public synchronized void calculate(SparseNetwork network){
+        
+        //more nodes
+        numNodes = Math.max(numNodes, linkedNodes(network));
+        data.resize(numNodes, infinity);
         
         data.network = network;
-        data.DVNeigbhors = new ArrayList<>();
+        data.costsChanged = false;
+        data.neighborVersions = new long[data.neighbors.size()];
+        data.neighborLatencies = new long[data.neighbors.size()];
         
-        for (int i = 0; i < numNodes; i++){
-            for (int j = 0; j < numNodes; j++){
-                data.DV[i][j] = Configuration.INFINITY;
-            }
+        //the neighbor DVs start over, nothing to relax until they are requested
+        data.neighborChanges = new ChangeLog(data.neighbors.size(), data.lean ? numNodes : numNodes * numNodes);
+        
+        //direct routes
+        int myIndex = data.nodeInfo.getNodeNumber() - 1;
+        Arrays.fill(data.nextHops, 0);
+        for (int k = 0; k < network.degree(myIndex); k++){
+            int target = network.target(network.offset(myIndex) + k);
+            data.nextHops[target] = target + 1;
         }
+        data.nextHops[myIndex] = myIndex + 1;
+        
+        //all neighbors are feasible successors until there is a route
+        Arrays.fill(data.feasibleDistances, infinity);
+        data.feasibleDistances[myIndex] = 0;
+        Arrays.fill(data.activeSince, 0);
+        active = false;
+        
+        if (data.lean){
+            calculateVector(network);
+            publish(true);
+            return;
+        }
+        
+        data.DVNeigbhors = new ArrayList<>();
+        
+        //new DV, the previous one may be read
+        DistanceMatrix DV = Utility.createMatrix(numNodes, infinity);
         
         //cost to itself
-        data.DV[data.nodeInfo.getNodeNumber() - 1][data.nodeInfo.getNodeNumber() - 1] = 0;
+        DV.set(myIndex, myIndex, 0);
         
         //create distance vector
-        for (int toNode = 0; toNode < numNodes; toNode++){
+        for (int k = 0; k < network.degree(myIndex); k++){
             //set the cost 
-            if (data.network[data.nodeInfo.getNodeNumber() - 1][toNode] != 0){
-                data.DV[data.nodeInfo.getNodeNumber() - 1][toNode] = data.network[data.nodeInfo.getNodeNumber() - 1][toNode];
-            }
+            int link = network.offset(myIndex) + k;
+            DV.set(myIndex, network.target(link), network.cost(link));
         }
         
         for (int i = 0; i < data.neighbors.size(); i++){
-            data.DVNeigbhors.add(Utility.createMatrix());
+            data.DVNeigbhors.add(Utility.createMatrix(numNodes, infinity));
         }
         
+        data.DV = DV;
+        data.publishAll();
+        publish(true);
+        share(0);
+        
         //debug
-        //System.out.println(Utility.DV2String(numNodes, data.network));
-        //System.out.println(Utility.DV2String(numNodes, data.DV));
+        //System.out.println(Utility.DV2String(numNodes, infinity, data.network.toMatrix()));
+        //System.out.println(Utility.DV2String(numNodes, infinity, data.DV));
+    }
+    
+    /**
+     * setup own distances and the distances of neighbors, lean mode
+     * @param network links of network
+     */
+    private void calculateVector(SparseNetwork network){
+        
+        int[] vector = new int[numNodes];
+        
+        Arrays.fill(vector, infinity);
+        
+        //cost to itself and to neighbors
+        int myIndex = data.nodeInfo.getNodeNumber() - 1;
+        vector[myIndex] = 0;
+        for (int k = 0; k < network.degree(myIndex); k++){
+            int link = network.offset(myIndex) + k;
+            vector[network.target(link)] = network.cost(link);
+        }
+        
+        data.neighborVectors = new ArrayList<>();
+        for (int i = 0; i < data.neighbors.size(); i++){
+            int[] neighborVector = new int[numNodes];
+            Arrays.fill(neighborVector, infinity);
+            data.neighborVectors.add(neighborVector);
+        }
+        
+        data.vector = vector;
+        data.publishAll();
+    }
+    
+    /**
+     * new costs of links, sent to all nodes
+     * a node that keeps its distances recomputes them with the new costs and the neighbor DVs it has,
+     * otherwise, or with a link to a node that is not its neighbor, it starts over;
+     * if a path can be longer than infinity, all nodes find the same larger infinity from the network
+     * and start over, the distances they have use the old one
+     * @param network links of network
+     */
+    public synchronized void changeCosts(SparseNetwork network){
+        
+        int needed = Utility.infinity(numNodes, network);
+        if (needed > infinity){
+            infinity = needed;
+            calculate(network);
+            return;
+        }
+        applyCosts(network);
+    }
+    
+    /**
+     * new costs of links, infinity is large enough
+     * @param network links of network
+     */
+    private void applyCosts(SparseNetwork network){
+        
+        int myIndex = data.nodeInfo.getNodeNumber() - 1;
+        boolean neighborsOnly = data.network != null && linkedNodes(network) <= numNodes;
+        for (int k = 0; neighborsOnly && k < network.degree(myIndex); k++){
+            neighborsOnly = neighborPosition(network.target(network.offset(myIndex) + k) + 1) >= 0;
+        }
+        
+        if (!(keepDistances || feasibleSuccessors) || !neighborsOnly){
+            calculate(network);
+            return;
+        }
+        
+        data.network = network;
+        data.costsChanged = true;
+        updateDV();
+    }
+    
+    /**
+     * new costs of own links, sent to the two ends of each link only;
+     * the other nodes keep the network they know, a node reads only its own links from it;
+     * the master sends the network to all nodes instead if infinity has to grow
+     * @param links (from, to, cost) triples, node indexes, cost 0 removes the link
+     */
+    public synchronized void changeLinks(int[] links){
+        
+        SparseNetwork network = data.network;
+        for (int k = 0; k < links.length; k += 3){
+            network = network.withCost(links[k], links[k + 1], links[k + 2]);
+        }
+        applyCosts(network);
+    }
+    
+    /**
+     * position of a neighbor in the neighbors
+     * @param nodeNumber node number of neighbor
+     * @return position, -1 if not a neighbor
+     */
+    private int neighborPosition(int nodeNumber){
+        for (int i = 0; i < data.neighbors.size(); i++){
+            if (data.neighbors.get(i).getNodeNumber() == nodeNumber){
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * number of nodes that have links in network, at least numNodes
+     * @param network links of network
+     * @return number of nodes
+     */
+    private int linkedNodes(SparseNetwork network){
+        return Math.max(numNodes, network.linkedNodes());
+    }
+    
+    /**
+     * DV of neighbor in the size of own DV,
+     * grow own tables if the neighbor knows more nodes
+     * @param DV DV of neighbor
+     * @param size rows and columns needed
+     * @return DV of neighbor, resized if needed
+     */
+    synchronized DistanceMatrix fit(DistanceMatrix DV, int size){
+        
+        if (size > numNodes){
+            numNodes = size;
+            data.resize(numNodes, infinity);
+            for (int i = 0; i < data.DVNeigbhors.size(); i++){
+                data.DVNeigbhors.set(i, data.DVNeigbhors.get(i).resize(numNodes, infinity));
+            }
+            data.neighborChanges.resize(numNodes * numNodes);
+            publish(false);
+        }
+        
+        if (DV.size() != numNodes){
+            return DV.resize(numNodes, infinity);
+        }
+        return DV;
+    }
+    
+    /**
+     * vector of neighbor in the length of own vector,
+     * grow own vectors if the neighbor knows more nodes, lean mode
+     * @param vector vector of neighbor
+     * @param size length needed
+     * @return vector of neighbor, resized if needed
+     */
+    synchronized int[] fitVector(int[] vector, int size){
+        
+        if (size > numNodes){
+            numNodes = size;
+            data.resize(numNodes, infinity);
+            for (int i = 0; i < data.neighborVectors.size(); i++){
+                data.neighborVectors.set(i, Utility.resizeVector(data.neighborVectors.get(i), numNodes, infinity));
+            }
+            data.neighborChanges.resize(numNodes);
+            publish(false);
+        }
+        
+        if (vector.length < numNodes){
+            return Utility.resizeVector(vector, numNodes, infinity);
+        }
+        return vector;
+    }
+    
+    /**
+     * update DV based on neighbor DVs
+     * @return true if DV changed
+     */
+    synchronized boolean updateDV(){
+        return updateDV(0);
+    }
+    
+    /**
+     * update DV based on neighbor DVs in a step,
+     * keep the DV of the previous step for the neighbors that ask later in the step
+     * 
+     * only the neighbor entries in the change log are relaxed:
+     * DV entries only decrease until the next calculate, so an entry that did not change
+     * cannot give a shorter distance than it gave in the last update
+     * @param round step, 0 if none
+     * @return true if DV changed
+     */
+    synchronized boolean updateDV(int round){
+        
+        updates.incrementAndGet();
+        
+        if (keepDistances || feasibleSuccessors){
+            return recompute(round);
+        }
+        
+        if (data.lean){
+            return updateVector(round);
+        }
+        
+        int myIndex = data.nodeInfo.getNodeNumber() - 1; //node index
+        ChangeLog log = changeLog();
+        
+        //update a copy, the previous DV may be read; no change, no copy
+        DistanceMatrix previous = data.DV;
+        boolean relax = !log.isEmpty() || !zeroDiagonal(previous);
+        DistanceMatrix next = relax ? previous.copy() : previous;
+        
+        int[] DV = next.values();
+        int size = next.size();
+        int myRow = next.offset(myIndex);
+        int[] nextHops = data.nextHops;
+        long[] entryVersions = data.entryVersions;
+        long newVersion = data.version + 1;
+        boolean changed = false;
+        boolean routesChanged = false;
+        
+        for (int i = 0; relax && i < data.neighbors.size(); i++){
+            
+            int[] neighborDV = data.DVNeigbhors.get(i).values();
+            int neighborIndex = data.neighbors.get(i).getNodeNumber() - 1; //neighbor node row index
+            int cost = data.network.get(myIndex, neighborIndex);
+            int neighborRow = next.offset(neighborIndex);
+            
+            if (cost == 0){
+                //the link failed
+                continue;
+            }
+            
+            if (log.isAll(i)){
+                
+                //ask its neighbors, a shorter path goes through the neighbor
+                routesChanged |= kernel.relax(DV, myRow, neighborDV, neighborRow, cost, size, 
+                        entryVersions, newVersion, nextHops, neighborIndex + 1);
+                
+                //the other rows, what the neighbor knows
+                changed |= kernel.relax(DV, 0, neighborDV, 0, 0, myRow, entryVersions, newVersion, null, 0);
+                changed |= kernel.relax(DV, myRow + size, neighborDV, myRow + size, 0, DV.length - myRow - size, 
+                        entryVersions, newVersion, null, 0);
+                continue;
+            }
+            
+            for (int n = 0; n < log.count(i); n++){
+                
+                int k = log.entry(i, n);
+                int fromIndex = k / size;
+                int toNode = k % size;
+                
+                if (fromIndex == neighborIndex){
+                    int distance = cost + neighborDV[k];
+                    if (distance < DV[myRow + toNode]){
+                        DV[myRow + toNode] = distance;
+                        entryVersions[myRow + toNode] = newVersion;
+                        nextHops[toNode] = neighborIndex + 1;
+                        routesChanged = true;
+                    }
+                }
+                if (fromIndex != myIndex && neighborDV[k] < DV[k]){
+                    DV[k] = neighborDV[k];
+                    entryVersions[k] = newVersion;
+                    changed = true;
+                }
+            }
+        }
+        
+        for (int fromIndex = 0; relax && fromIndex < size; fromIndex++){
+            int k = next.offset(fromIndex) + fromIndex;
+            if (DV[k] != 0){
+                DV[k] = 0;
+                entryVersions[k] = newVersion;
+                changed = true;
+            }
+        }
+        log.clear();
+        
+        data.DV = next;
+        
+        if (round > 0){
+            data.round = round;
+            data.previousDV = previous;
+            data.previousVersion = data.version;
+            data.previousHops = snapshot.nextHops;
+        }
+        
+        changed |= routesChanged;
+        if (changed){
+            data.version = newVersion;
+        }
+        publish(routesChanged);
+        share(round);
+        return changed;
+    }
+    
+    /**
+     * update own distances from the neighbor DVs when the nodes keep their distances
+     * a changed neighbor entry recomputes the own distance to its destination from the link
+     * and all neighbors, so distances grow when a route gets longer or fails;
+     * without another route they count up to infinity.
+     * The other rows of DV are the rows of the neighbor that is the next hop to their node
+     * @param round step, 0 if none
+     * @return true if changed, also if only a next hop changed
+     */
+    private boolean recompute(int round){
+        
+        int myIndex = data.nodeInfo.getNodeNumber() - 1; //node index
+        ChangeLog log = changeLog();
+        boolean lean = data.lean;
+        int numNeighbors = data.neighbors.size();
+        data.updates++;
+        
+        //update a copy, the previous DV may be read; no change, no copy
+        DistanceMatrix previousDV = data.DV;
+        int[] previousVector = data.vector;
+        boolean update = data.costsChanged || !log.isEmpty() || (!lean && !zeroDiagonal(previousDV)) 
+                || (feasibleSuccessors && data.anyActive());
+        DistanceMatrix next = !lean && update ? previousDV.copy() : previousDV;
+        int[] vector = lean && update ? previousVector.clone() : previousVector;
+        
+        int size = lean ? vector.length : next.size();
+        int[] own = lean ? vector : next.values();
+        int ownOffset = lean ? 0 : next.offset(myIndex);
+        int[] nextHops = data.nextHops;
+        long[] entryVersions = data.entryVersions;
+        long newVersion = data.version + 1;
+        boolean changed = false;
+        boolean routesChanged = false;
+        
+        //own distances of neighbors and the costs of the links to them, 0 if the link failed
+        int[][] neighborValues = new int[numNeighbors][];
+        int[] neighborOffsets = new int[numNeighbors];
+        int[] costs = new int[numNeighbors];
+        for (int i = 0; i < numNeighbors; i++){
+            int neighborIndex = data.neighbors.get(i).getNodeNumber() - 1;
+            neighborValues[i] = lean ? data.neighborVectors.get(i) : data.DVNeigbhors.get(i).values();
+            neighborOffsets[i] = lean ? 0 : next.offset(neighborIndex);
+            costs[i] = data.network.get(myIndex, neighborIndex);
+        }
+        
+        //destinations to recompute
+        boolean[] dirty = new boolean[size];
+        for (int i = 0; update && i < numNeighbors; i++){
+            if (data.costsChanged || log.isAll(i)){
+                Arrays.fill(dirty, true);
+                break;
+            }
+            for (int n = 0; n < log.count(i); n++){
+                int k = log.entry(i, n);
+                if (lean){
+                    dirty[k] = true;
+                }else if (k - neighborOffsets[i] >= 0 && k - neighborOffsets[i] < size){
+                    dirty[k - neighborOffsets[i]] = true;
+                }
+            }
+        }
+        
+        //next hop changed
+        boolean[] moved = new boolean[size];
+        
+        for (int toNode = 0; toNode < size; toNode++){
+            
+            if (!dirty[toNode] && data.activeSince[toNode] == 0){
+                continue;
+            }
+            
+            int distance = 0;
+            int hop = myIndex + 1;
+            if (toNode != myIndex){
+                
+                //active for two updates: the neighbors got the distance and replied, the feasible distance starts over
+                boolean active = data.activeSince[toNode] > 0;
+                if (active && data.updates - data.activeSince[toNode] >= 2){
+                    active = false;
+                    data.activeSince[toNode] = 0;
+                    data.feasibleDistances[toNode] = infinity;
+                }
+                int feasibleDistance = feasibleSuccessors ? data.feasibleDistances[toNode] : Integer.MAX_VALUE;
+                
+                //the link, then the neighbors in order; the shortest distance over all neighbors
+                //and over the feasible successors, neighbors that report less than the feasible distance
+                int cost = data.network.get(myIndex, toNode);
+                distance = cost > 0 ? cost : infinity;
+                hop = cost > 0 ? toNode + 1 : 0;
+                int shortest = distance;
+                for (int i = 0; i < numNeighbors; i++){
+                    int reported = neighborValues[i][neighborOffsets[i] + toNode];
+                    if (costs[i] > 0){
+                        shortest = Math.min(shortest, costs[i] + reported);
+                        if (reported < feasibleDistance && costs[i] + reported < distance){
+                            distance = costs[i] + reported;
+                            hop = data.neighbors.get(i).getNodeNumber();
+                        }
+                    }
+                }
+                if (distance >= infinity){
+                    distance = infinity;
+                    hop = 0;
+                }
+                
+                //a shorter route through a neighbor that is not feasible may loop: keep the feasible successor,
+                //or no route, until the neighbors know it (diffusing computation)
+                if (feasibleSuccessors){
+                    if (!active && shortest < distance){
+                        data.activeSince[toNode] = data.updates;
+                    }else if (!active){
+                        data.feasibleDistances[toNode] = hop == 0 ? infinity : Math.min(feasibleDistance, distance);
+                    }
+                }
+            }
+            
+            //a moved hop changes what a neighbor is told with poison reverse
+            if (own[ownOffset + toNode] != distance || nextHops[toNode] != hop){
+                own[ownOffset + toNode] = distance;
+                entryVersions[ownOffset + toNode] = newVersion;
+                changed = true;
+            }
+            if (nextHops[toNode] != hop){
+                nextHops[toNode] = hop;
+                moved[toNode] = true;
+                routesChanged = true;
+            }
+        }
+        
+        if (!lean && update){
+            changed |= followHops(next, myIndex, log, neighborValues, moved, newVersion);
+        }
+        
+        data.costsChanged = false;
+        active = feasibleSuccessors && data.anyActive();
+        log.clear();
+        data.DV = next;
+        data.vector = vector;
+        
+        if (round > 0){
+            data.round = round;
+            data.previousDV = previousDV;
+            data.previousVector = previousVector;
+            data.previousVersion = data.version;
+            data.previousHops = snapshot.nextHops;
+        }
+        
+        if (changed){
+            data.version = newVersion;
+        }
+        publish(routesChanged);
+        if (!lean){
+            share(round);
+        }
+        return changed;
+    }
+    
+    /**
+     * rows of the other nodes in DV, the row of the next hop neighbor to each node
+     * @param next DV being updated
+     * @param myIndex own node index
+     * @param log changed neighbor entries
+     * @param neighborDVs entries of neighbor DVs
+     * @param moved next hop of node changed in this update
+     * @param newVersion version of the update
+     * @return true if an entry changed
+     */
+    private boolean followHops(DistanceMatrix next, int myIndex, ChangeLog log, int[][] neighborDVs, boolean[] moved, 
+            long newVersion){
+        
+        int[] DV = next.values();
+        int size = next.size();
+        long[] entryVersions = data.entryVersions;
+        boolean changed = false;
+        
+        //changed entries of rows whose next hop did not move
+        for (int i = 0; i < neighborDVs.length; i++){
+            int neighborNumber = data.neighbors.get(i).getNodeNumber();
+            for (int n = 0; !log.isAll(i) && n < log.count(i); n++){
+                int k = log.entry(i, n);
+                int fromIndex = k / size;
+                if (fromIndex != myIndex && !moved[fromIndex] && data.nextHops[fromIndex] == neighborNumber 
+                        && DV[k] != neighborDVs[i][k]){
+                    DV[k] = neighborDVs[i][k];
+                    entryVersions[k] = newVersion;
+                    changed = true;
+                }
+            }
+        }
+        
+        //whole rows of moved next hops and of neighbors that sent all
+        for (int fromIndex = 0; fromIndex < size; fromIndex++){
+            
+            int row = next.offset(fromIndex);
+            int i = data.nextHops[fromIndex] > 0 ? neighborPosition(data.nextHops[fromIndex]) : -1;
+            
+            if (fromIndex != myIndex && (moved[fromIndex] || (i >= 0 && log.isAll(i)))){
+                for (int toNode = 0; toNode < size; toNode++){
+                    int distance = i >= 0 ? neighborDVs[i][row + toNode] : infinity;
+                    if (DV[row + toNode] != distance){
+                        DV[row + toNode] = distance;
+                        entryVersions[row + toNode] = newVersion;
+                        changed = true;
+                    }
+                }
+            }
+            
+            if (DV[row + fromIndex] != 0){
+                DV[row + fromIndex] = 0;
+                entryVersions[row + fromIndex] = newVersion;
+                changed = true;
+            }
+        }
+        return changed;
+    }
+    
+    /**
+     * DV as sent to a neighbor, split horizon with poison reverse:
+     * own distances routed through the neighbor are infinity
+     * @param DV DV
+     * @param hops next hops of DV
+     * @param neighbor node number of neighbor, 0 if not a neighbor
+     * @return DV, a poisoned copy if needed
+     */
+    DistanceMatrix poison(DistanceMatrix DV, int[] hops, int neighbor){
+        
+        if (!poisonReverse || DV == null || neighbor <= 0){
+            return DV;
+        }
+        
+        DistanceMatrix poisoned = DV.copy();
+        int row = poisoned.offset(data.nodeInfo.getNodeNumber() - 1);
+        poison(poisoned.values(), row, Math.min(poisoned.size(), hops.length), hops, neighbor);
+        return poisoned;
+    }
+    
+    /**
+     * own vector as sent to a neighbor, split horizon with poison reverse, lean mode
+     * @param vector own vector
+     * @param hops next hops of vector
+     * @param neighbor node number of neighbor, 0 if not a neighbor
+     * @return vector, a poisoned copy if needed
+     */
+    int[] poison(int[] vector, int[] hops, int neighbor){
+        
+        if (!poisonReverse || vector == null || neighbor <= 0){
+            return vector;
+        }
+        
+        int[] poisoned = vector.clone();
+        poison(poisoned, 0, Math.min(poisoned.length, hops.length), hops, neighbor);
+        return poisoned;
+    }
+    
+    /**
+     * set own distances routed through neighbor to infinity
+     */
+    private void poison(int[] values, int offset, int length, int[] hops, int neighbor){
+        for (int toNode = 0; toNode < length; toNode++){
+            if (hops[toNode] == neighbor){
+                values[offset + toNode] = infinity;
+            }
+        }
+    }
+    
+    /**
+     * DV changes as sent to a neighbor, split horizon with poison reverse
+     * @param changes (row, column, cost) triples
+     * @param hops next hops of the DV of the changes
+     * @param neighbor node number of neighbor, 0 if not a neighbor
+     * @return changes, a poisoned copy if needed
+     */
+    int[] poisonChanges(int[] changes, int[] hops, int neighbor){
+        
+        if (!poisonReverse || neighbor <= 0){
+            return changes;
+        }
+        
+        int myIndex = data.nodeInfo.getNodeNumber() - 1;
+        int[] poisoned = changes;
+        for (int k = 0; k < changes.length; k += 3){
+            int toNode = changes[k + 1];
+            if (changes[k] == myIndex && toNode < hops.length && hops[toNode] == neighbor){
+                if (poisoned == changes){
+                    poisoned = changes.clone();
+                }
+                poisoned[k + 2] = infinity;
+            }
+        }
+        return poisoned;
+    }
+    
+    /**
+     * neighbor entries to relax in an update
+     * @return change log, all entries of all neighbors if not incremental
+     */
+    private ChangeLog changeLog(){
+        if (!incremental){
+            for (int i = 0; i < data.neighbors.size(); i++){
+                data.neighborChanges.addAll(i);
+            }
+        }
+        return data.neighborChanges;
+    }
+    
+    /**
+     * each node is at 0 from itself in DV
+     * @param DV DV
+     * @return true if the whole diagonal is 0
+     */
+    private static boolean zeroDiagonal(DistanceMatrix DV){
+        for (int i = 0; i < DV.size(); i++){
+            if (DV.get(i, i) != 0){
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * update own distances based on the distances of neighbors, lean mode
+     * only the neighbor entries in the change log are relaxed, like updateDV
+     * @param round step, 0 if none
+     * @return true if changed
+     */
+    private boolean updateVector(int round){
+        
+        int myIndex = data.nodeInfo.getNodeNumber() - 1; //node index
+        ChangeLog log = changeLog();
+        
+        //update a copy, the previous vector may be read; no change, no copy
+        int[] previous = data.vector;
+        boolean relax = !log.isEmpty();
+        int[] vector = relax ? previous.clone() : previous;
+        int[] nextHops = data.nextHops;
+        long[] entryVersions = data.entryVersions;
+        long newVersion = data.version + 1;
+        boolean routesChanged = false;
+        
+        for (int i = 0; relax && i < data.neighbors.size(); i++){
+            
+            int[] neighborVector = data.neighborVectors.get(i);
+            int neighborNumber = data.neighbors.get(i).getNodeNumber();
+            int cost = data.network.get(myIndex, neighborNumber - 1);
+            
+            if (cost == 0){
+                //the link failed
+                continue;
+            }
+            
+            if (log.isAll(i)){
+                routesChanged |= kernel.relax(vector, 0, neighborVector, 0, cost, vector.length, 
+                        entryVersions, newVersion, nextHops, neighborNumber);
+                continue;
+            }
+            
+            for (int n = 0; n < log.count(i); n++){
+                int toNode = log.entry(i, n);
+                int distance = cost + neighborVector[toNode];
+                if (distance < vector[toNode]){
+                    vector[toNode] = distance;
+                    entryVersions[toNode] = newVersion;
+                    nextHops[toNode] = neighborNumber;
+                    routesChanged = true;
+                }
+            }
+        }
+        log.clear();
+        data.vector = vector;
+        
+        if (round > 0){
+            data.round = round;
+            data.previousVector = previous;
+            data.previousVersion = data.version;
+            data.previousHops = snapshot.nextHops;
+        }
+        
+        if (routesChanged){
+            data.version = newVersion;
+        }
+        publish(routesChanged);
+        return routesChanged;
+    }
+    
+    /**
+     * publish the state after a change for the readers
+     * @param routesChanged next hops changed, the routing table is replaced
+     */
+    private void publish(boolean routesChanged){
+        
+        int[] nextHops = snapshot.nextHops;
+        
+        if (routesChanged || nextHops.length != data.nextHops.length){
+            nextHops = data.nextHops.clone();
+            if (!data.lean){
+                //own row holds the next hops
+                DistanceMatrix routingTable = data.routingTable.copy();
+                int myIndex = data.nodeInfo.getNodeNumber() - 1;
+                System.arraycopy(nextHops, 0, routingTable.values(), routingTable.offset(myIndex), routingTable.size());
+                data.routingTable = routingTable;
+            }
+        }
+        
+        snapshot = data.lean
+                ? new DVSnapshot(data.version, null, data.vector, null, nextHops)
+                : new DVSnapshot(data.version, data.DV, null, data.routingTable, nextHops);
+    }
+    
+    /**
+     * state of the last change, for readers that do not lock the node
+     * @return snapshot
+     */
+    DVSnapshot snapshot(){
+        return snapshot;
+    }
+    
+    /**
+     * DV of the last change, read without locking
+     * it is never changed, the next update replaces it; callers must not change it either
+     * @return DV, null for a lean node
+     */
+    public DistanceMatrix getDV(){
+        return snapshot.DV;
+    }
+    
+    /**
+     * next hop to a destination, from the routes of the last update
+     * it does not lock, so it can be called while the node updates
+     * @param destination destination node number
+     * @return node number of the neighbor to forward to, own node number for itself, 0 if unreachable
+     */
+    public int nextHop(int destination){
+        int[] hops = snapshot.nextHops;
+        return destination > 0 && destination <= hops.length ? hops[destination - 1] : 0;
+    }
+    
+    /**
+     * write DV to shared memory
+     * @param round step of the update, 0 if none
+     */
+    private void share(int round){
+        if (sharedDVs != null){
+            sharedDVs.write(data.nodeInfo.getNodeNumber() - 1, round, data.version, data.DV);
+        }
+    }
+    
+    /**
+     * neighbor pushed its DV
+     * keep it, recompute and push own DV to neighbors if it changed
+     * an advertisement without a table of the sender's size is dropped
+     * @param message DV advertisement of neighbor
+     */
+    void receiveAdvertisement(Message message){
+        
+        boolean received = false;
+        
+        int size = data.lean 
+                ? (message.vector == null ? 0 : message.vector.length) 
+                : (message.DV == null ? 0 : message.DV.size());
+        if (message.from < 1 || size < message.from){
+            Logger.getLogger(NodeServer.class.getName()).log(Level.WARNING, 
+                    "Dropped advertisement of node {0} without its distances", message.from);
+            advertisementsReceived.incrementAndGet();
+            return;
+        }
+        
+        synchronized (this){
+            for (int i = 0; i < data.neighbors.size(); i++){
+                
+                //ignore reordered older advertisements
+                if (data.neighbors.get(i).getNodeNumber() == message.from && message.version > data.neighborVersions[i]){
+                    if (data.lean){
+                        data.neighborVectors.set(i, fitVector(message.vector, size));
+                    }else{
+                        data.DVNeigbhors.set(i, fit(message.DV, size));
+                    }
+                    data.neighborVersions[i] = message.version;
+                    data.neighborChanges.addAll(i);
+                    received = true;
+                }
+            }
+        }
+        
+        if (received){
+            updateSoon();
+        }
+        
+        //after the update is queued, a node that counted all advertisements it got is busy or passive
+        advertisementsReceived.incrementAndGet();
+    }
+    
+    /**
+     * update once with all neighbor DVs pushed until the update starts, and push own DV if it changed;
+     * the neighbors often push again before an update is done
+     */
+    private void updateSoon(){
+        if (updatePending.compareAndSet(false, true)){
+            pendingTasks.incrementAndGet();
+            TIMER.execute(() -> {
+                try {
+                    updatePending.set(false);
+                    boolean changed;
+                    synchronized (this){
+                        changed = updateDV();
+                        waitForNeighbors();
+                    }
+                    if (changed){
+                        pushSoon();
+                    }
+                } finally {
+                    pendingTasks.decrementAndGet();
+                }
+            });
+        }
+    }
+    
+    /**
+     * push own DV once for all changes until the push starts, it sends the DV of that moment;
+     * pushing every intermediate DV floods the neighbors with updates they replace right away
+     */
+    private void pushSoon(){
+        if (pushPending.compareAndSet(false, true)){
+            pendingTasks.incrementAndGet();
+            TIMER.execute(() -> {
+                try {
+                    pushPending.set(false);
+                    advertise();
+                } finally {
+                    pendingTasks.decrementAndGet();
+                }
+            });
+        }
+    }
+    
+    /**
+     * update again while destinations are active, push mode;
+     * nothing else updates the node if no neighbor changes
+     */
+    private synchronized void waitForNeighbors(){
+        
+        if (!feasibleSuccessors || !running || !data.anyActive() || recheck != null){
+            return;
+        }
+        
+        pendingTasks.incrementAndGet();
+        recheck = TIMER.schedule(() -> {
+            try {
+                boolean changed;
+                synchronized (this){
+                    recheck = null;
+                    changed = updateDV();
+                }
+                if (changed){
+                    advertise();
+                }
+                waitForNeighbors();
+            } finally {
+                pendingTasks.decrementAndGet();
+            }
+        }, Configuration.ACTIVE_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * push DV to all neighbors, the replies are not waited for
+     */
+    void advertise(){
+        
+        Message message = new Message();
+        message.type = Message.ADVERTISE_DV;
+        message.from = data.nodeInfo.getNodeNumber();
+        
+        DVSnapshot current = snapshot;
+        message.version = current.version;
+        message.DV = current.DV;
+        message.vector = current.vector;
+        
+        if (datagrams != null){
+            
+            //refresh periodically, lost datagrams are not resent
+            synchronized (this){
+                if (refresh == null){
+                    refresh = TIMER.scheduleAtFixedRate(this::advertise, Configuration.ADVERTISE_INTERVAL, 
+                            Configuration.ADVERTISE_INTERVAL, TimeUnit.MILLISECONDS);
+                }
+            }
+            
+            try {
+                boolean sent = true;
+                if (poisonReverse){
+                    //every neighbor is told its own distances
+                    for (int i = 0; sent && i < data.neighbors.size(); i++){
+                        NodeInfo neighbor = data.neighbors.get(i);
+                        Message advertisement = new Message();
+                        advertisement.type = message.type;
+                        advertisement.from = message.from;
+                        advertisement.version = message.version;
+                        advertisement.DV = poison(current.DV, current.nextHops, neighbor.getNodeNumber());
+                        advertisement.vector = poison(current.vector, current.nextHops, neighbor.getNodeNumber());
+                        sent = datagrams.send(advertisement, Collections.singletonList(neighbor));
+                    }
+                }else{
+                    sent = datagrams.send(message, data.neighbors);
+                }
+                if (sent){
+                    return;
+                }
+                //too large for a datagram, use TCP
+            } catch (IOException ex) {
+                if (running){
+                    Logger.getLogger(NodeServer.class.getName()).log(Level.WARNING, null, ex);
+                }
+                return;
+            }
+        }
+        
+        for (int i = 0; i < data.neighbors.size(); i++){
+            
+            //every neighbor gets own message, request id is set per connection
+            final NodeInfo neighbor = data.neighbors.get(i);
+            
+            Message advertisement = new Message();
+            advertisement.type = message.type;
+            advertisement.from = message.from;
+            advertisement.version = message.version;
+            advertisement.DV = poison(message.DV, current.nextHops, neighbor.getNodeNumber());
+            advertisement.vector = poison(message.vector, current.nextHops, neighbor.getNodeNumber());
+            
+            //counted before it can be received
+            advertisementsSent.incrementAndGet();
+            transport.requestAsync(neighbor, advertisement).whenComplete((reply, ex) -> {
+                if (ex != null){
+                    advertisementsSent.decrementAndGet();
+                }
+                if (ex != null && running){
+                    Logger.getLogger(NodeServer.class.getName()).log(Level.WARNING, 
+                            "Node {0}: could not push DV to node {1}", 
+                            new Object[]{data.nodeInfo.getNodeNumber(), neighbor.getNodeNumber()});
+                }
+            });
+        }
     }
     
     public void run(){
         
         System.out.println("Node " + data.nodeInfo.getNodeNumber() + " started...");
         
+        synchronized (this){
+            share(0);
+        }
+        
         try {
-            ServerSocket serverSocket = new ServerSocket(data.nodeInfo.getPort());
+            if (datagramAdvertisements){
+                datagrams = new DatagramAdvertiser(this, data.nodeInfo.getPort());
+                datagrams.start();
+            }
+            
+            if (nonBlocking){
+                //the event loops serve the port, this thread is done
+                binding = EventLoopGroup.shared().bind(data.nodeInfo.getPort(), handler);
+                return;
+            }
+            
+            serverSocket = new ServerSocket(data.nodeInfo.getPort());
             serverSocket.setSoTimeout(0);
-            while (true) {
+            while (running) {
 
                 Socket connectionSocket = serverSocket.accept();
+                connectionSocket.setTcpNoDelay(true);
 
-                (new NodeService(connectionSocket, this)).start();
+                executor.execute(new NodeService(connectionSocket, this));
             }
 
         } catch (IOException ex) {
+            if (!running){
+                return; //shut down
+            }
+            Logger.getLogger(NodeServer.class.getName()).log(Level.SEVERE, null, ex);
             JOptionPane.showMessageDialog(null, "Could not start Node " + data.nodeInfo.getNodeNumber());
         }
     }
 
+    /**
+     * stop the node
+     * close server socket and connections to neighbors
+     */
+    public void shutdown(){
+        
+        running = false;
+        
+        try {
+            if (serverSocket != null){
+                serverSocket.close();
+            }
+        } catch (IOException ex) {
+            //ignore
+        }
+        
+        if (binding != null){
+            binding.close();
+        }
+        
+        synchronized (this){
+            if (refresh != null){
+                refresh.cancel(false);
+            }
+            if (recheck != null){
+                recheck.cancel(false);
+            }
+        }
+        
+        if (datagrams != null){
+            datagrams.close();
+        }
+        
+        transport.close();
+    }
+
+    /**
+     * serve with the shared event loops instead of a thread per connection
+     * call before start
+     * @param nonBlocking true/false
+     */
+    public void setNonBlocking(boolean nonBlocking) {
+        this.nonBlocking = nonBlocking;
+    }
+
+    /**
+     * set executor that runs a NodeService for each connection
+     * call before start
+     * @param executor executor
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * send DV advertisements as UDP datagrams, TCP stays for control messages
+     * call before start
+     * @param datagramAdvertisements true/false
+     */
+    public void setDatagramAdvertisements(boolean datagramAdvertisements) {
+        this.datagramAdvertisements = datagramAdvertisements;
+    }
+
+    /**
+     * relax only the neighbor entries that changed since the last update,
+     * false relaxes all entries of all neighbors in each update
+     * @param incremental true/false
+     */
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+
+    /**
+     * keep the distances when costs change and recompute them from the neighbor DVs,
+     * false starts over with calculate
+     * call before start
+     * @param keepDistances true/false
+     */
+    public void setKeepDistances(boolean keepDistances) {
+        this.keepDistances = keepDistances;
+    }
+
+    /**
+     * route only through feasible successors, loop-free backups after a cost increase or link failure;
+     * a destination without one is unreachable until the neighbors know it (diffusing computation),
+     * implies keeping the distances when costs change
+     * call before start
+     * @param feasibleSuccessors true/false
+     */
+    public void setFeasibleSuccessors(boolean feasibleSuccessors) {
+        this.feasibleSuccessors = feasibleSuccessors;
+    }
+
+    /**
+     * split horizon with poison reverse, own distances routed through a neighbor are sent to it as infinity
+     * call before start
+     * @param poisonReverse true/false
+     */
+    public void setPoisonReverse(boolean poisonReverse) {
+        this.poisonReverse = poisonReverse;
+    }
+
+    /**
+     * set kernel of the updates that relax whole neighbor DVs
+     * call before start
+     * @param kernel kernel
+     */
+    public void setKernel(MinPlus kernel) {
+        this.kernel = kernel;
+    }
+
+    /**
+     * read neighbor DVs from shared memory and write own DV there
+     * call before start
+     * @param sharedDVs DVs of all nodes
+     */
+    public void setSharedDVs(SharedDVRegion sharedDVs) {
+        //the region holds DV tables, lean nodes request the vectors
+        this.sharedDVs = data.lean ? null : sharedDVs;
+    }
+
+    /**
+     * get number of advertisements received from neighbors
+     * @return number of advertisements
+     */
+    public long getAdvertisementsReceived() {
+        return advertisementsReceived.get();
+    }
+
+    /**
+     * counts of the termination detection, push mode: advertisements sent over TCP,
+     * advertisements received, updates or pushes queued or running and 1 if a destination is active;
+     * all nodes are done when two rounds of counts are the same, the sums of sent and received are equal
+     * and no node has a task or an active destination
+     * @return counts
+     */
+    public long[] status() {
+        return new long[]{advertisementsSent.get(), advertisementsReceived.get(), pendingTasks.get(), active ? 1 : 0};
+    }
+    
+    /**
+     * a destination waits for the neighbors, feasible successors; the DV version does not change
+     * while it waits, so the node is not stable even if its version is the same
+     * @return true/false
+     */
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * get number of DVs sent to neighbors that requested them
+     * @return number of DVs
+     */
+    public long getDVsSent() {
+        return DVsSent.get();
+    }
+
+    /**
+     * get number of DV updates, one per step or per received advertisement
+     * @return number of updates
+     */
+    public long getUpdates() {
+        return updates.get();
+    }
+
+    /**
+     * get time to wait for the DV of a neighbor
+     * @return timeout (ms)
+     */
+    public long getNeighborTimeout() {
+        return neighborTimeout;
+    }
+
+    /**
+     * set time to wait for the DV of a neighbor,
+     * a neighbor that does not reply in time keeps its last known DV
+     * @param neighborTimeout timeout (ms)
+     */
+    public void setNeighborTimeout(long neighborTimeout) {
+        this.neighborTimeout = neighborTimeout;
+    }
+
+    /**
+     * get time of the last DV request to each neighbor, in the order of neighbors
+     * @return latencies (ns), -1 if the neighbor timed out or failed
+     */
+    public long[] getNeighborLatencies() {
+        return data.neighborLatencies.clone();
+    }
+
     /**
      * get number of nodes in simulation
      * @number of nodes in simulation
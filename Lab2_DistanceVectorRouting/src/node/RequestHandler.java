@@ -0,0 +1,328 @@
+package node;
+
+import common.DistanceMatrix;
+import common.Message;
+import common.NodeInfo;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import master.MasterFrame;
+
+/**
+ * RequestHandler handles the requests to a node
+ * It is shared by the blocking NodeService threads and the non-blocking event loops,
+ * so it does not block while it waits for neighbors
+ */
+class RequestHandler {
+    
+    /**
+     * reference to node server
+     */
+    private final NodeServer nodeServer;
+
+    /**
+     * constructor
+     * @param nodeServer node server
+     */
+    RequestHandler(NodeServer nodeServer) {
+        this.nodeServer = nodeServer;
+    }
+    
+    /**
+     * handle request
+     * the message is filled in and is the reply
+     * @param message request
+     * @return reply, completed when the request is done
+     */
+    CompletableFuture<Message> handle(Message message){
+        
+        if (message.type == Message.REQUEST_DV){
+            
+            nodeServer.DVsSent.incrementAndGet();
+            setDV(message);
+            
+        }else if (message.type == Message.REQUEST_DV_CHANGES){
+            
+            nodeServer.DVsSent.incrementAndGet();
+            synchronized (nodeServer){
+                
+                NodeData data = nodeServer.data;
+                long since = message.version;
+                
+                if (data.lean){
+                    vectorChanges(message, data, since);
+                    return CompletableFuture.completedFuture(message);
+                }
+                
+                //already updated in this step, the neighbor gets the DV of the previous step
+                boolean previous = message.round > 0 && message.round <= data.round && data.previousDV != null;
+                DistanceMatrix DV = previous ? data.previousDV : data.DV;
+                int[] hops = previous ? data.previousHops : data.nextHops;
+                message.version = previous ? data.previousVersion : data.version;
+
+                if (since <= 0 || since > message.version){
+                    //unknown version, send all
+                    message.DV = nodeServer.poison(DV, hops, message.from);
+                }else{
+                    //empty if not modified
+                    message.changes = nodeServer.poisonChanges(data.changesSince(since, DV), hops, message.from);
+                }
+            }
+            
+        }else if (message.type == Message.REQUEST_DV_RT){
+            
+            DVSnapshot snapshot = setDV(message);
+            message.routingTable = snapshot.routingTable;
+            
+        }else if (message.type == Message.REQUEST_NEIGHBOUR_DVS){
+            
+            return requestNeighbourDVs(message.round).thenApply(done -> message);
+            
+        }else if (message.type == Message.REQUEST_UPDATE_DV){
+            
+            //the version tells the master whether the DV changed, without the DV;
+            //an active destination waits without changing it
+            nodeServer.updateDV(message.round);
+            message.version = nodeServer.snapshot().version;
+            message.counts = nodeServer.isActive() ? new long[]{1} : null;
+
+        }else if (message.type == Message.ADVERTISE_DV){
+            
+            //pushed by neighbor, recompute and push again if DV changed
+            nodeServer.receiveAdvertisement(message);
+            message.DV = null;
+
+        }else if (message.type == Message.REQUEST_ADVERTISE){
+            
+            nodeServer.advertise();
+
+        }else if (message.type == Message.REQUEST_STATUS){
+            
+            message.counts = nodeServer.status();
+
+        }else if (message.type == Message.REQUEST_CHANGE_COST){
+            
+            nodeServer.changeCosts(message.costs);
+            
+        }else if (message.type == Message.REQUEST_CHANGE_LINK){
+            
+            nodeServer.changeLinks(message.changes);
+            message.changes = null;
+            
+        }else if (message.type == Message.REQUEST_BATCH){
+            
+            return handleBatch(message);
+        }  
+        
+        return CompletableFuture.completedFuture(message);
+    }
+    
+    /**
+     * reply with DV, own vector of a lean node
+     * the DV of the last change is sent, without locking the node
+     * @param message reply
+     * @return state that was sent
+     */
+    private DVSnapshot setDV(Message message){
+        DVSnapshot snapshot = nodeServer.snapshot();
+        message.version = snapshot.version;
+        message.DV = snapshot.DV;
+        message.vector = snapshot.vector;
+        return snapshot;
+    }
+    
+    /**
+     * reply to REQUEST_DV_CHANGES with own vector or its changes, lean mode
+     * @param message request, filled in as reply
+     * @param data data of node
+     * @param since version known by the neighbor
+     */
+    private void vectorChanges(Message message, NodeData data, long since){
+        
+        //already updated in this step, the neighbor gets the vector of the previous step
+        boolean previous = message.round > 0 && message.round <= data.round && data.previousVector != null;
+        int[] vector = previous ? data.previousVector : data.vector;
+        int[] hops = previous ? data.previousHops : data.nextHops;
+        message.version = previous ? data.previousVersion : data.version;
+        
+        if (since <= 0 || since > message.version){
+            //unknown version, send all
+            message.vector = nodeServer.poison(vector, hops, message.from);
+        }else{
+            //empty if not modified
+            message.changes = nodeServer.poisonChanges(
+                    data.changesSince(since, vector, data.nodeInfo.getNodeNumber() - 1), hops, message.from);
+        }
+    }
+    
+    /**
+     * handle the requests of a batch in order,
+     * each one starts when the one before is done
+     * @param message batch request
+     * @return batch of replies, completed when the last request is done
+     */
+    private CompletableFuture<Message> handleBatch(Message message){
+        
+        CompletableFuture<Message> done = CompletableFuture.completedFuture(null);
+        
+        for (final Message part : message.batch){
+            done = done.thenCompose(previous -> handle(part));
+        }
+        
+        return done.thenApply(last -> message);
+    }
+    
+    /**
+     * retrieve the DVs of all neighbors at the same time
+     * a neighbor that does not reply within the timeout keeps its last known DV
+     * @param round step, 0 if none
+     * @return completed when all neighbors replied or timed out
+     */
+    private CompletableFuture<Void> requestNeighbourDVs(int round){
+        
+        int numNeighbors = nodeServer.data.neighbors.size();
+        CompletableFuture<?>[] requests = new CompletableFuture<?>[numNeighbors];
+        
+        for (int i = 0; i < numNeighbors; i++){
+            requests[i] = requestNeighbourDV(i, round);
+        }
+        
+        return CompletableFuture.allOf(requests);
+    }
+    
+    /**
+     * retrieve DV of neighbor i, record the latency
+     * @param i index of neighbor
+     * @param round step, 0 if none
+     * @return completed when neighbor replied or timed out, never fails
+     */
+    private CompletableFuture<Void> requestNeighbourDV(final int i, int round){
+        
+        final NodeInfo neighbor = nodeServer.data.neighbors.get(i);
+        final long timeout = nodeServer.getNeighborTimeout();
+        final long startTime = System.nanoTime();
+        
+        if (nodeServer.sharedDVs != null){
+            //read from shared memory, a neighbor that has not written keeps its last known DV
+            synchronized (nodeServer){
+                long version = nodeServer.sharedDVs.read(neighbor.getNodeNumber() - 1, round, 
+                        nodeServer.data.DVNeigbhors.get(i));
+                if (version > 0 && version != nodeServer.data.neighborVersions[i]){
+                    nodeServer.data.neighborVersions[i] = version;
+                    nodeServer.data.neighborChanges.addAll(i);
+                }
+                nodeServer.data.neighborLatencies[i] = System.nanoTime() - startTime;
+            }
+            return CompletableFuture.completedFuture(null);
+        }
+        
+        //send request, only the changes since the version we have
+        Message request = new Message();
+        request.type = Message.REQUEST_DV_CHANGES;
+        request.from = nodeServer.data.nodeInfo.getNodeNumber();
+        request.version = nodeServer.data.neighborVersions[i];
+        request.round = round;
+        
+        //the node may start over while waiting, with new neighbors and latencies
+        final long[] latencies = nodeServer.data.neighborLatencies;
+        
+        //give up after timeout, a late reply is dropped
+        //the timeout completes a copy, the connection of the request stays open
+        final CompletableFuture<Message> reply = new CompletableFuture<>();
+        final ScheduledFuture<?> timer = NodeServer.TIMER.schedule(() -> {
+            reply.completeExceptionally(new TimeoutException());
+        }, timeout, TimeUnit.MILLISECONDS);
+        
+        nodeServer.transport.requestAsync(neighbor, request).whenComplete((message, ex) -> {
+            if (ex != null){
+                reply.completeExceptionally(ex);
+            }else{
+                reply.complete(message);
+            }
+        });
+        
+        return reply.handle((message, ex) -> {
+            
+            timer.cancel(false);
+            
+            //update, the replies of the neighbors complete on several threads at the same time;
+            //a reply to the neighbors before the node started over is dropped
+            synchronized (nodeServer){
+                if (nodeServer.data.neighborLatencies != latencies){
+                    return null;
+                }
+                if (ex == null){
+                    applyNeighbourDV(i, message);
+                }
+                latencies[i] = ex == null ? System.nanoTime() - startTime : -1;
+            }
+            
+            if (ex instanceof TimeoutException || ex != null && ex.getCause() instanceof TimeoutException){
+                Logger.getLogger(RequestHandler.class.getName()).log(Level.WARNING, 
+                        "Node {0}: neighbor {1} did not reply within {2} ms", 
+                        new Object[]{nodeServer.data.nodeInfo.getNodeNumber(), neighbor.getNodeNumber(), timeout});
+            }else if (ex != null){
+                Logger.getLogger(MasterFrame.class.getName()).log(Level.SEVERE, null, ex);
+            }
+            return null;
+        });
+    }
+    
+    /**
+     * update the copy of neighbor DV with the reply of REQUEST_DV_CHANGES
+     * call with the node locked
+     * @param i index of neighbor
+     * @param reply whole DV or the changed entries
+     */
+    private void applyNeighbourDV(int i, Message reply){
+        
+        if (nodeServer.data.lean){
+            applyNeighbourVector(i, reply);
+        }else if (reply.DV != null){
+            nodeServer.data.DVNeigbhors.set(i, nodeServer.fit(reply.DV, reply.DV.size()));
+            nodeServer.data.neighborChanges.addAll(i);
+        }else{
+            //the neighbor may know more nodes
+            int size = 0;
+            for (int k = 0; k < reply.changes.length; k += 3){
+                size = Math.max(size, Math.max(reply.changes[k], reply.changes[k + 1]) + 1);
+            }
+            DistanceMatrix DV = nodeServer.fit(nodeServer.data.DVNeigbhors.get(i), size);
+            nodeServer.data.DVNeigbhors.set(i, DV);
+            for (int k = 0; k < reply.changes.length; k += 3){
+                DV.set(reply.changes[k], reply.changes[k + 1], reply.changes[k + 2]);
+                nodeServer.data.neighborChanges.add(i, DV.offset(reply.changes[k]) + reply.changes[k + 1]);
+            }
+        }
+        nodeServer.data.neighborVersions[i] = reply.version;
+    }
+    
+    /**
+     * update the copy of neighbor vector with the reply of REQUEST_DV_CHANGES, lean mode
+     * call with the node locked
+     * @param i index of neighbor
+     * @param reply whole vector or the changed entries
+     */
+    private void applyNeighbourVector(int i, Message reply){
+        
+        if (reply.vector != null){
+            nodeServer.data.neighborVectors.set(i, nodeServer.fitVector(reply.vector, reply.vector.length));
+            nodeServer.data.neighborChanges.addAll(i);
+        }else{
+            //the neighbor may know more nodes
+            int size = 0;
+            for (int k = 0; k < reply.changes.length; k += 3){
+                size = Math.max(size, reply.changes[k + 1] + 1);
+            }
+            int[] vector = nodeServer.fitVector(nodeServer.data.neighborVectors.get(i), size);
+            nodeServer.data.neighborVectors.set(i, vector);
+            for (int k = 0; k < reply.changes.length; k += 3){
+                vector[reply.changes[k + 1]] = reply.changes[k + 2];
+                nodeServer.data.neighborChanges.add(i, reply.changes[k + 1]);
+            }
+        }
+    }
+}
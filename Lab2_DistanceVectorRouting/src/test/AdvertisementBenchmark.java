@@ -0,0 +1,129 @@
+package test;
+
+import common.BinaryCodec;
+import common.Configuration;
+import common.DistanceMatrix;
+import common.Message;
+import common.MessageCodec;
+import common.NodeInfo;
+import common.SparseNetwork;
+import common.Transport;
+import common.Utility;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import node.NodeServer;
+
+/**
+ * DV advertisement throughput on loopback, TCP requests against UDP datagrams
+ * node 1 (this benchmark) advertises to node 2 (a NodeServer), 
+ * node 2 counts what it receives
+ * 
+ * usage: AdvertisementBenchmark [advertisements]
+ */
+public class AdvertisementBenchmark {
+    
+    /**
+     * advertisements in flight on TCP
+     */
+    private static final int WINDOW = 64;
+    
+    public static void main(String[] args) throws Exception {
+        
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int numNodes = Topologies.DEFAULT_NODES;
+        SparseNetwork network = Topologies.random(numNodes, numNodes, 10, 42).withCost(0, 1, 1);
+        
+        NodeInfo sender = new NodeInfo(1, Configuration.NODE_ADDRESS, Configuration.BASIC_PORT + 1);
+        NodeInfo receiver = new NodeInfo(2, Configuration.NODE_ADDRESS, Configuration.BASIC_PORT + 2);
+        
+        NodeServer server = new NodeServer(numNodes, receiver, network, Arrays.asList(sender));
+        server.setDatagramAdvertisements(true);
+        server.start();
+        Thread.sleep(1000);
+        
+        DistanceMatrix DV = Utility.createMatrix(numNodes, Configuration.MIN_INFINITY);
+        for (int j = 0; j < numNodes; j++){
+            DV.set(0, j, j);
+        }
+        
+        System.out.println(String.format("advertisements: %d, nodes: %d", count, numNodes));
+        System.out.println(String.format("%-6s %12s %12s", "", "received", "per second"));
+        
+        //TCP
+        Transport transport = Transport.create(true, MessageCodec.forName("binary"));
+        long received = server.getAdvertisementsReceived();
+        long startTime = System.nanoTime();
+        
+        List<CompletableFuture<Message>> window = new ArrayList<>();
+        for (int k = 1; k <= count; k++){
+            window.add(transport.requestAsync(receiver, advertisement(DV, k)));
+            if (window.size() == WINDOW || k == count){
+                CompletableFuture.allOf(window.toArray(new CompletableFuture<?>[0])).join();
+                window.clear();
+            }
+        }
+        
+        long time = System.nanoTime() - startTime;
+        received = server.getAdvertisementsReceived() - received;
+        print("tcp", received, time);
+        transport.close();
+        
+        //UDP
+        DatagramChannel channel = DatagramChannel.open();
+        channel.bind(new InetSocketAddress(sender.getPort()));
+        InetSocketAddress target = new InetSocketAddress(receiver.getAddress(), receiver.getPort());
+        
+        received = server.getAdvertisementsReceived();
+        startTime = System.nanoTime();
+        
+        for (int k = 1; k <= count; k++){
+            byte[] bytes = BinaryCodec.INSTANCE.encode(advertisement(DV, count + k));
+            ByteBuffer datagram = ByteBuffer.allocate(bytes.length + 1);
+            datagram.put(BinaryCodec.INSTANCE.getId()).put(bytes).flip();
+            channel.send(datagram, target);
+        }
+        
+        //wait until the receiver is done, lost datagrams never come
+        long last = -1;
+        long lastTime = System.nanoTime();
+        while (server.getAdvertisementsReceived() - received < count){
+            long now = server.getAdvertisementsReceived();
+            if (now != last){
+                last = now;
+                lastTime = System.nanoTime();
+            }else if (System.nanoTime() - lastTime > 200000000L){
+                break;
+            }
+            Thread.sleep(1);
+        }
+        
+        time = lastTime - startTime;
+        received = server.getAdvertisementsReceived() - received;
+        print("udp", received, time);
+        
+        channel.close();
+        server.shutdown();
+        System.exit(0);
+    }
+    
+    /**
+     * advertisement of node 1
+     */
+    private static Message advertisement(DistanceMatrix DV, long version){
+        Message message = new Message();
+        message.type = Message.ADVERTISE_DV;
+        message.from = 1;
+        message.version = version;
+        message.DV = DV;
+        return message;
+    }
+    
+    private static void print(String name, long received, long time){
+        System.out.println(String.format("%-6s %12d %12.0f", name, received, received / (time / 1e9)));
+    }
+}
@@ -0,0 +1,61 @@
+package test;
+
+import common.MessageCodec;
+import common.SparseNetwork;
+import master.Simulation;
+
+/**
+ * convergence of lock-step rounds driven by the master (before) and of asynchronous updates (after),
+ * where a node updates as soon as the DV of a neighbor arrives and pushes its own when it changed,
+ * on the same topologies, with full and lean nodes: master steps, DV updates per node,
+ * DV messages between nodes and time to stable
+ *
+ * usage: AsyncBenchmark [runs]
+ */
+public class AsyncBenchmark {
+
+    public static void main(String[] args){
+
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+
+        System.out.println(String.format("runs: %d", runs));
+        System.out.println(String.format("%8s %-6s %-10s %8s %14s %14s %14s",
+                "nodes", "DVs", "mode", "steps", "updates/node", "DV messages", "ms to stable"));
+
+        for (int numNodes : new int[]{Topologies.DEFAULT_NODES, 20, 50}){
+            for (boolean lean : new boolean[]{false, true}){
+            for (boolean async : new boolean[]{false, true}){
+
+                int steps = 0;
+                long updates = 0;
+                long messages = 0;
+                long time = 0;
+                for (int run = 0; run < runs; run++){
+
+                    SparseNetwork network = Topologies.random(numNodes, numNodes, 10, run);
+                    Simulation simulation = new Simulation(numNodes, network, true, MessageCodec.forName("binary"));
+                    simulation.setNonBlocking(true);
+                    simulation.setLeanNodes(lean);
+                    simulation.setPushUpdates(async);
+                    simulation.start();
+
+                    long startUpdates = simulation.getUpdates();
+                    long startMessages = simulation.getDVMessages();
+                    long startTime = System.nanoTime();
+                    steps += PushBenchmark.runToStable(simulation);
+                    time += System.nanoTime() - startTime;
+                    updates += simulation.getUpdates() - startUpdates;
+                    messages += simulation.getDVMessages() - startMessages;
+
+                    simulation.shutdown();
+                }
+
+                System.out.println(String.format("%8d %-6s %-10s %8.1f %14.1f %14.1f %14.1f",
+                        numNodes, lean ? "lean" : "full", async ? "async" : "lock-step", (double)steps / runs,
+                        (double)updates / runs / numNodes, (double)messages / runs, time / 1e6 / runs));
+            }
+            }
+        }
+        System.exit(0);
+    }
+}
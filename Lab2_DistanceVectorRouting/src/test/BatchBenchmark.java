@@ -0,0 +1,60 @@
+package test;
+
+import common.MessageCodec;
+import common.SparseNetwork;
+import master.Simulation;
+
+/**
+ * step time with a request per phase and a barrier after each (before)
+ * and with one pipelined batch per node (after)
+ * 
+ * usage: BatchBenchmark [rounds]
+ */
+public class BatchBenchmark {
+    
+    public static void main(String[] args){
+        
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int numNodes = Topologies.DEFAULT_NODES;
+        SparseNetwork network = Topologies.random(numNodes, numNodes, 10, 42);
+        
+        double phases = run(numNodes, network, false, false, rounds);
+        double batch = run(numNodes, network, false, true, rounds);
+        double nonBlockingPhases = run(numNodes, network, true, false, rounds);
+        double nonBlockingBatch = run(numNodes, network, true, true, rounds);
+        
+        System.out.println(String.format("nodes: %d, rounds: %d", numNodes, rounds));
+        System.out.println(String.format("request per phase:              %8.3f ms/round", phases));
+        System.out.println(String.format("batch per node:                 %8.3f ms/round", batch));
+        System.out.println(String.format("request per phase, event loops: %8.3f ms/round", nonBlockingPhases));
+        System.out.println(String.format("batch per node, event loops:    %8.3f ms/round", nonBlockingBatch));
+        System.exit(0);
+    }
+    
+    /**
+     * run rounds and measure average round time
+     * @return ms per round
+     */
+    private static double run(int numNodes, SparseNetwork network, boolean nonBlocking, boolean batchSteps, int rounds){
+        
+        Simulation simulation = new Simulation(numNodes, network, true, MessageCodec.forName("binary"));
+        simulation.setNonBlocking(nonBlocking);
+        simulation.setBatchSteps(batchSteps);
+        simulation.start();
+        
+        //warm up
+        for (int i = 0; i < rounds / 10; i++){
+            simulation.runOneStep();
+        }
+        
+        long startTime = System.nanoTime();
+        for (int i = 0; i < rounds; i++){
+            simulation.runOneStep();
+        }
+        long endTime = System.nanoTime();
+        
+        simulation.shutdown();
+        
+        return (endTime - startTime) / 1e6 / rounds;
+    }
+}
@@ -0,0 +1,98 @@
+package test;
+
+import common.Configuration;
+import common.DistanceMatrix;
+import common.Message;
+import common.MessageCodec;
+import common.Utility;
+
+/**
+ * bytes per message and encode/decode time of the codecs
+ * 
+ * usage: CodecBenchmark [iterations]
+ */
+public class CodecBenchmark {
+    
+    public static void main(String[] args) throws Exception {
+        
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        int numNodes = Topologies.DEFAULT_NODES;
+        
+        //initial DV: own row only, other rows unknown
+        Message initial = new Message();
+        initial.type = Message.REQUEST_DV;
+        initial.DV = Utility.createMatrix(numNodes, Configuration.MIN_INFINITY);
+        for (int j = 0; j < numNodes; j++){
+            initial.DV.set(0, j, j);
+        }
+        
+        //converged DV: all rows known
+        Message converged = new Message();
+        converged.type = Message.REQUEST_DV_RT;
+        converged.DV = Utility.createMatrix(numNodes, Configuration.MIN_INFINITY);
+        converged.routingTable = new DistanceMatrix(numNodes);
+        for (int i = 0; i < numNodes; i++){
+            for (int j = 0; j < numNodes; j++){
+                converged.DV.set(i, j, Math.abs(i - j) * 3);
+            }
+        }
+        
+        //costs of network
+        Message costs = new Message();
+        costs.type = Message.REQUEST_CHANGE_COST;
+        costs.costs = Topologies.random(numNodes, numNodes, 10, 42);
+        
+        //request without matrices
+        Message request = new Message();
+        request.type = Message.REQUEST_NEIGHBOUR_DVS;
+        request.requestId = 12345;
+        
+        System.out.println(String.format("%-12s %-12s %8s %12s %12s", "codec", "message", "bytes", "encode ns", "decode ns"));
+        
+        for (String codecName : new String[]{"java", "binary"}){
+            
+            MessageCodec codec = MessageCodec.forName(codecName);
+            
+            run(codec, "request", request, iterations);
+            run(codec, "initialDV", initial, iterations);
+            run(codec, "converged", converged, iterations);
+            run(codec, "costs", costs, iterations);
+        }
+    }
+    
+    /**
+     * encode/decode message and print result
+     */
+    private static void run(MessageCodec codec, String name, Message message, int iterations) throws Exception {
+        
+        byte[] bytes = codec.encode(message);
+        
+        //warm up
+        for (int i = 0; i < iterations / 10; i++){
+            codec.decode(codec.encode(message), bytes.length);
+        }
+        
+        long startTime = System.nanoTime();
+        for (int i = 0; i < iterations; i++){
+            bytes = codec.encode(message);
+        }
+        long encodeTime = System.nanoTime() - startTime;
+        
+        Message decoded = null;
+        startTime = System.nanoTime();
+        for (int i = 0; i < iterations; i++){
+            decoded = codec.decode(bytes, bytes.length);
+        }
+        long decodeTime = System.nanoTime() - startTime;
+        
+        //round trip must keep the content
+        if (decoded.type != message.type || decoded.requestId != message.requestId
+                || (message.DV != null && !Utility.equals(message.DV, decoded.DV))
+                || (message.costs != null && !message.costs.equals(decoded.costs))){
+            throw new IllegalStateException(codec.getClass().getSimpleName() + " changed " + name);
+        }
+        
+        System.out.println(String.format("%-12s %-12s %8d %12d %12d", 
+                codec.getClass().getSimpleName(), name, bytes.length, encodeTime / iterations, decodeTime / iterations));
+    }
+}
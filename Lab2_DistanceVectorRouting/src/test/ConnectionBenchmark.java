@@ -0,0 +1,57 @@
+package test;
+
+import common.MessageCodec;
+import common.SparseNetwork;
+import master.Simulation;
+
+/**
+ * per-round latency with one socket per request (before)
+ * and with long-lived multiplexed connections (after)
+ * 
+ * usage: ConnectionBenchmark [rounds]
+ */
+public class ConnectionBenchmark {
+    
+    public static void main(String[] args){
+        
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int numNodes = Topologies.DEFAULT_NODES;
+        SparseNetwork network = Topologies.random(numNodes, numNodes, 10, 42);
+        
+        double oneShot = run(numNodes, network, false, false, rounds);
+        double persistent = run(numNodes, network, true, false, rounds);
+        double nonBlocking = run(numNodes, network, true, true, rounds);
+        
+        System.out.println(String.format("nodes: %d, rounds: %d", numNodes, rounds));
+        System.out.println(String.format("one socket per request: %8.3f ms/round", oneShot));
+        System.out.println(String.format("persistent connections: %8.3f ms/round", persistent));
+        System.out.println(String.format("event loop nodes:       %8.3f ms/round", nonBlocking));
+        System.exit(0);
+    }
+    
+    /**
+     * run rounds and measure average round time
+     * @return ms per round
+     */
+    private static double run(int numNodes, SparseNetwork network, boolean persistent, boolean nonBlocking, int rounds){
+        
+        Simulation simulation = new Simulation(numNodes, network, persistent, MessageCodec.forName("binary"));
+        simulation.setNonBlocking(nonBlocking);
+        simulation.start();
+        
+        //warm up
+        for (int i = 0; i < rounds / 10; i++){
+            simulation.runOneStep();
+        }
+        
+        long startTime = System.nanoTime();
+        for (int i = 0; i < rounds; i++){
+            simulation.runOneStep();
+        }
+        long endTime = System.nanoTime();
+        
+        simulation.shutdown();
+        
+        return (endTime - startTime) / 1e6 / rounds;
+    }
+}
@@ -0,0 +1,108 @@
+package test;
+
+import common.BinaryCodec;
+import common.DistanceMatrix;
+import common.Message;
+import common.MessageCodec;
+import common.ShortestPaths;
+import common.SparseNetwork;
+import java.util.List;
+import master.Simulation;
+
+/**
+ * stability detected by the master from the DVs of all nodes, requested and compared in each step (tables),
+ * and from small replies (detect): the DV version of each node after a lock-step step,
+ * or the advertisement counts of asynchronous nodes (termination detection by counting);
+ * the DVs are requested once at the end;
+ * an asynchronous step is one observe interval, with tables it also requests all DVs and takes longer,
+ * both detect stability by counting, so compare the time to stable and not the steps
+ * steps and time to stable, bytes of the replies the master reads per step and the own distances
+ * that are not shortest paths at the end; the reply bytes are the binary encoding of the final DVs
+ * or of a version or counts reply, routing tables not counted
+ *
+ * usage: ConvergenceBenchmark [runs]
+ */
+public class ConvergenceBenchmark {
+
+    public static void main(String[] args){
+
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+
+        System.out.println(String.format("runs: %d", runs));
+        System.out.println(String.format("%8s %-6s %-10s %-8s %8s %14s %16s %8s",
+                "nodes", "DVs", "mode", "stable", "steps", "ms to stable", "reply bytes/step", "wrong"));
+
+        for (int numNodes : new int[]{20, 50}){
+            for (String mode : new String[]{"full", "lean", "async"}){
+            for (boolean detect : new boolean[]{false, true}){
+
+                int steps = 0;
+                long time = 0;
+                long bytes = 0;
+                int wrong = 0;
+                for (int run = 0; run < runs; run++){
+
+                    SparseNetwork network = Topologies.random(numNodes, numNodes, 10, run);
+                    Simulation simulation = new Simulation(numNodes, network, true, MessageCodec.forName("binary"));
+                    simulation.setNonBlocking(true);
+                    simulation.setLeanNodes(mode.equals("lean"));
+                    simulation.setPushUpdates(mode.equals("async"));
+                    simulation.setConvergenceDetection(detect);
+                    simulation.start();
+
+                    long startTime = System.nanoTime();
+                    int runSteps = 0;
+                    do {
+                        simulation.runOneStep();
+                        runSteps++;
+                    } while (!simulation.isStable());
+                    List<DistanceMatrix> DVs = simulation.getNodeDVList();
+                    time += System.nanoTime() - startTime;
+                    steps += runSteps;
+
+                    bytes += replyBytes(DVs, mode, detect);
+                    DistanceMatrix distances = ShortestPaths.parallel().compute(numNodes, network, simulation.getInfinity());
+                    wrong += ShortestPaths.verify(DVs, distances);
+
+                    simulation.shutdown();
+                }
+
+                System.out.println(String.format("%8d %-6s %-10s %-8s %8.1f %14.1f %16d %8d",
+                        numNodes, mode.equals("lean") ? "lean" : "full", mode.equals("async") ? "async" : "lock-step",
+                        detect ? "detect" : "tables", (double)steps / runs, time / 1e6 / runs, bytes / runs, wrong));
+            }
+            }
+        }
+        System.exit(0);
+    }
+
+    /**
+     * bytes of the replies of one step, binary encoding
+     * @param DVs final DVs
+     * @param mode full, lean or async
+     * @param detect true: version or counts replies, false: DV replies
+     * @return bytes
+     */
+    private static long replyBytes(List<DistanceMatrix> DVs, String mode, boolean detect){
+
+        long bytes = 0;
+        for (int i = 0; i < DVs.size(); i++){
+            Message reply = new Message();
+            if (detect && mode.equals("async")){
+                reply.type = Message.REQUEST_STATUS;
+                reply.counts = new long[]{1000, 1000, 0, 0};
+            }else if (detect){
+                reply.type = Message.REQUEST_UPDATE_DV;
+                reply.version = 100;
+            }else if (mode.equals("lean")){
+                reply.type = Message.REQUEST_DV_RT;
+                reply.vector = DVs.get(i).row(i).toArray();
+            }else{
+                reply.type = Message.REQUEST_DV_RT;
+                reply.DV = DVs.get(i);
+            }
+            bytes += BinaryCodec.INSTANCE.encode(reply).length;
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,51 @@
+package test;
+
+import common.MessageCodec;
+import common.SparseNetwork;
+import common.TaskExecutors;
+import master.Simulation;
+
+/**
+ * step time and thread creation/scheduling overhead of the executors
+ * 
+ * usage: ExecutorBenchmark [rounds] [poolSize]
+ */
+public class ExecutorBenchmark {
+    
+    public static void main(String[] args){
+        
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int poolSize = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        int numNodes = Topologies.DEFAULT_NODES;
+        SparseNetwork network = Topologies.random(numNodes, numNodes, 10, 42);
+        
+        System.out.println(String.format("nodes: %d, rounds: %d", numNodes, rounds));
+        System.out.println(String.format("%-10s %14s %18s", "executor", "ms/step", "scheduling us/step"));
+        
+        for (String mode : new String[]{"thread", "virtual", "pool"}){
+            
+            Simulation simulation = new Simulation(numNodes, network, true, MessageCodec.forName("binary"));
+            simulation.setExecutor(TaskExecutors.create(mode, poolSize));
+            simulation.start();
+            
+            //warm up
+            for (int i = 0; i < rounds / 10; i++){
+                simulation.runOneStep();
+            }
+            
+            long stepTime = 0;
+            long schedulingTime = 0;
+            for (int i = 0; i < rounds; i++){
+                simulation.runOneStep();
+                stepTime += simulation.getStepTime();
+                schedulingTime += simulation.getSchedulingTime();
+            }
+            
+            simulation.shutdown();
+            
+            System.out.println(String.format("%-10s %14.3f %18.1f", mode, 
+                    stepTime / 1e6 / rounds, schedulingTime / 1e3 / rounds));
+        }
+        System.exit(0);
+    }
+}
@@ -0,0 +1,167 @@
+package test;
+
+import common.DistanceMatrix;
+import common.MessageCodec;
+import common.SparseNetwork;
+import common.Utility;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Random;
+import master.Simulation;
+
+/**
+ * time to valid routes after a link failure, with all nodes starting over (reset),
+ * with nodes that keep their distances and poison reverse (poison)
+ * and with nodes that route only through feasible successors (feasible)
+ * a route is valid if following the next hops over live links reaches the destination,
+ * it loops if they come back to a node; pairs that the failure disconnects are not counted
+ *
+ * usage: FailoverBenchmark [nodes] [failed links]
+ */
+public class FailoverBenchmark {
+
+    public static void main(String[] args){
+
+        int numNodes = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        int failures = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        SparseNetwork network = Topologies.random(numNodes, numNodes, 10, 7);
+
+        //links to fail
+        Random random = new Random(7);
+        int[][] links = new int[failures][];
+        for (int c = 0; c < failures; c++){
+            int from = random.nextInt(numNodes);
+            int link = network.offset(from) + random.nextInt(network.degree(from));
+            links[c] = new int[]{from, network.target(link), network.cost(link)};
+        }
+
+        System.out.println(String.format("nodes: %d, links: %d, failed links: %d",
+                numNodes, network.numLinks() / 2, failures));
+        System.out.println(String.format("%-10s %14s %14s %12s %14s %12s",
+                "mode", "valid at once", "steps valid", "ms valid", "steps stable", "most loops"));
+
+        for (String mode : new String[]{"reset", "poison", "feasible"}){
+
+            Simulation simulation = new Simulation(numNodes, network, true, MessageCodec.forName("binary"));
+            simulation.setNonBlocking(true);
+            simulation.setKeepDistances(mode.equals("poison"));
+            simulation.setPoisonReverse(!mode.equals("reset"));
+            simulation.setFeasibleSuccessors(mode.equals("feasible"));
+            simulation.start();
+            runToQuiet(simulation);
+
+            double validAtOnce = 0;
+            int validSteps = 0;
+            int stableSteps = 0;
+            long time = 0;
+            double loops = 0;
+            for (int[] link : links){
+
+                SparseNetwork failed = network.withCost(link[0], link[1], 0);
+
+                long startTime = System.nanoTime();
+                simulation.changeCost(link[0], link[1], 0);
+                double[] routes = routes(simulation, failed);
+                validAtOnce += routes[0];
+                int steps = 0;
+                while (routes[0] < 1){
+                    loops = Math.max(loops, routes[1]);
+                    simulation.runOneStep();
+                    steps++;
+                    routes = routes(simulation, failed);
+                }
+                time += System.nanoTime() - startTime;
+                validSteps += steps;
+                stableSteps += steps + runToQuiet(simulation);
+
+                //back to the old cost, not measured
+                simulation.changeCost(link[0], link[1], link[2]);
+                runToQuiet(simulation);
+            }
+            simulation.shutdown();
+
+            System.out.println(String.format("%-10s %13.1f%% %14.1f %12.1f %14.1f %11.1f%%",
+                    mode, validAtOnce * 100 / failures, (double)validSteps / failures,
+                    time / 1e6 / failures, (double)stableSteps / failures, loops * 100));
+        }
+        System.exit(0);
+    }
+
+    /**
+     * run steps until the DVs did not change for two steps,
+     * a destination without feasible successor stays unreachable for two updates
+     * @return steps
+     */
+    private static int runToQuiet(Simulation simulation){
+
+        int steps = 0;
+        int quiet = 0;
+        while (quiet < 2){
+            List<DistanceMatrix> previous = simulation.getNodeDVList();
+            simulation.runOneStep();
+            steps++;
+            quiet = Utility.equals(previous, simulation.getNodeDVList()) ? quiet + 1 : 0;
+        }
+        return steps;
+    }
+
+    /**
+     * share of connected pairs whose next hops reach the destination over live links,
+     * and whose next hops loop
+     * @param network network with the failed link
+     * @return share of valid routes, share of looping routes
+     */
+    private static double[] routes(Simulation simulation, SparseNetwork network){
+
+        int numNodes = network.numNodes();
+        int connected = 0;
+        int valid = 0;
+        int looping = 0;
+        for (int from = 0; from < numNodes; from++){
+            boolean[] reachable = reachable(network, from);
+            for (int to = 0; to < numNodes; to++){
+                if (to == from || !reachable[to]){
+                    continue;
+                }
+                connected++;
+
+                int node = from;
+                for (int hops = 0; hops < numNodes && node != to; hops++){
+                    int next = simulation.getNextHop(node, to);
+                    node = next >= 0 && network.get(node, next) > 0 ? next : -1;
+                    if (node < 0){
+                        break;
+                    }
+                }
+                if (node == to){
+                    valid++;
+                }else if (node >= 0){
+                    looping++;
+                }
+            }
+        }
+        return connected == 0 ? new double[]{1, 0} : new double[]{(double)valid / connected, (double)looping / connected};
+    }
+
+    /**
+     * nodes reachable from a node over live links
+     */
+    private static boolean[] reachable(SparseNetwork network, int from){
+
+        boolean[] reachable = new boolean[network.numNodes()];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        reachable[from] = true;
+        queue.add(from);
+        while (!queue.isEmpty()){
+            int node = queue.poll();
+            for (int link = network.offset(node); link < network.offset(node + 1); link++){
+                if (network.cost(link) > 0 && !reachable[network.target(link)]){
+                    reachable[network.target(link)] = true;
+                    queue.add(network.target(link));
+                }
+            }
+        }
+        return reachable;
+    }
+}
@@ -0,0 +1,115 @@
+package test;
+
+import common.Configuration;
+import common.MessageCodec;
+import common.NodeInfo;
+import common.SparseNetwork;
+import common.Transport;
+import common.Utility;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import node.NodeServer;
+
+/**
+ * next hop lookups per second while the node recalculates its routes all the time,
+ * with the node locked for each lookup (before) and without locking (after)
+ *
+ * usage: ForwardingBenchmark [readers] [seconds]
+ */
+public class ForwardingBenchmark {
+
+    public static void main(String[] args) throws Exception {
+
+        int readers = args.length > 0 ? Integer.parseInt(args[0]) : 2;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        int numNodes = 1000;
+
+        //two networks, a changed cost moves routes
+        SparseNetwork network = Topologies.random(numNodes, numNodes, 10, 42);
+        SparseNetwork changed = network.withCost(0, network.target(network.offset(0)), 100);
+        int infinity = Math.max(Utility.infinity(numNodes, network), Utility.infinity(numNodes, changed));
+
+        List<NodeInfo> nodeInfoList = new ArrayList<>();
+        for (int i = 0; i < numNodes; i++){
+            nodeInfoList.add(new NodeInfo(i + 1, Configuration.NODE_ADDRESS, Configuration.BASIC_PORT + i + 1));
+        }
+        List<NodeInfo> neighbors = new ArrayList<>();
+        for (int link = network.offset(0); link < network.offset(1); link++){
+            neighbors.add(nodeInfoList.get(network.target(link)));
+        }
+        NodeServer server = new NodeServer(numNodes, infinity, nodeInfoList.get(0), network, neighbors,
+                Transport.create(true, MessageCodec.forName("binary")));
+
+        System.out.println(String.format("nodes: %d, readers: %d, seconds: %d", numNodes, readers, seconds));
+
+        for (int repeat = 0; repeat < 2; repeat++){
+            //first repeat warms up
+            double locked = run(server, network, changed, readers, seconds, true);
+            double lockFree = run(server, network, changed, readers, seconds, false);
+            if (repeat == 1){
+                System.out.println(String.format("locked lookups:    %12.0f /s", locked));
+                System.out.println(String.format("lock-free lookups: %12.0f /s", lockFree));
+            }
+        }
+        server.shutdown();
+    }
+
+    /**
+     * look up next hops while one thread recalculates the routes
+     * @param locked lock the node for each lookup like the routing table requests
+     * @return lookups per second of all readers
+     */
+    private static double run(final NodeServer server, final SparseNetwork network, final SparseNetwork changed,
+            int readers, int seconds, final boolean locked) throws InterruptedException {
+
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final AtomicLong lookups = new AtomicLong();
+        final int numNodes = network.numNodes();
+
+        Thread writer = new Thread(() -> {
+            boolean flip = false;
+            while (running.get()){
+                server.calculate(flip ? changed : network);
+                flip = !flip;
+            }
+        });
+
+        List<Thread> threads = new ArrayList<>();
+        for (int r = 0; r < readers; r++){
+            threads.add(new Thread(() -> {
+                long count = 0;
+                int hops = 0;
+                int destination = 1;
+                while (running.get()){
+                    for (int k = 0; k < 1000; k++){
+                        if (locked){
+                            synchronized (server){
+                                hops += server.nextHop(destination);
+                            }
+                        }else{
+                            hops += server.nextHop(destination);
+                        }
+                        destination = destination == numNodes ? 1 : destination + 1;
+                    }
+                    count += 1000;
+                }
+                lookups.addAndGet(count + (hops == -1 ? 1 : 0));
+            }));
+        }
+
+        writer.start();
+        for (Thread thread : threads){
+            thread.start();
+        }
+        Thread.sleep(seconds * 1000L);
+        running.set(false);
+        writer.join();
+        for (Thread thread : threads){
+            thread.join();
+        }
+
+        return lookups.get() / (double)seconds;
+    }
+}
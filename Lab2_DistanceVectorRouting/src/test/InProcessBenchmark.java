@@ -0,0 +1,129 @@
+package test;
+
+import common.DistanceMatrix;
+import common.MessageCodec;
+import common.SparseNetwork;
+import common.Utility;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import master.InProcessSimulation;
+import master.Simulation;
+
+/**
+ * steps of the node servers (before) and of all nodes in this process (after)
+ * the own distances and next hops of every step are compared with full and lean nodes, from the start and after a cost change;
+ * then a large network file is run in process, one block of destinations to stable
+ *
+ * usage: InProcessBenchmark [nodes] [large network nodes] [destinations per block]
+ */
+public class InProcessBenchmark {
+
+    public static void main(String[] args) throws IOException {
+
+        int numNodes = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int largeNodes = args.length > 1 ? Integer.parseInt(args[1]) : 50000;
+        int blockSize = args.length > 2 ? Integer.parseInt(args[2]) : 256;
+
+        SparseNetwork network = Topologies.random(numNodes, numNodes, 10, 11);
+
+        //a cheaper link moves routes through it
+        int link = 0;
+        while (network.cost(link) < 2){
+            link++;
+        }
+        int changedFrom = 0;
+        while (network.offset(changedFrom + 1) <= link){
+            changedFrom++;
+        }
+        int changedTo = network.target(link);
+        int changedCost = network.cost(link) / 2;
+
+        System.out.println(String.format("nodes: %d, links: %d", numNodes, network.numLinks() / 2));
+        System.out.println(String.format("%-10s %8s %12s %10s", "nodes", "steps", "ms/step", "same DVs"));
+
+        for (boolean lean : new boolean[]{false, true}){
+
+            Simulation simulation = new Simulation(numNodes, network, true, MessageCodec.forName("binary"));
+            simulation.setNonBlocking(true);
+            simulation.setLeanNodes(lean);
+            simulation.start();
+
+            InProcessSimulation inProcess = new InProcessSimulation(numNodes, network);
+            inProcess.start();
+
+            boolean same = same(simulation, inProcess);
+            int steps = 0;
+            long time = 0;
+            long inProcessTime = 0;
+            for (int change = 0; change < 2; change++){
+                if (change == 1){
+                    simulation.changeCost(changedFrom, changedTo, changedCost);
+                    inProcess.changeCost(changedFrom, changedTo, changedCost);
+                }
+                List<DistanceMatrix> previous;
+                do {
+                    previous = simulation.getNodeDVList();
+                    simulation.runOneStep();
+                    inProcess.runOneStep();
+                    time += simulation.getStepTime();
+                    inProcessTime += inProcess.getStepTime();
+                    steps++;
+                    same &= same(simulation, inProcess);
+                } while (!Utility.equals(previous, simulation.getNodeDVList()));
+                same &= inProcess.isStable();
+            }
+            simulation.shutdown();
+
+            System.out.println(String.format("%-10s %8d %12.3f %10s",
+                    lean ? "lean" : "full", steps, time / 1e6 / steps, same ? "yes" : "NO"));
+            System.out.println(String.format("%-10s %8d %12.3f",
+                    "in process", steps, inProcessTime / 1e6 / steps));
+        }
+
+        //large network from a network file, like MasterFrame loads it
+        SparseNetwork generated = Topologies.random(largeNodes, largeNodes, 1000, largeNodes);
+        File file = File.createTempFile("network", ".txt");
+        file.deleteOnExit();
+        ScalingBenchmark.write(generated, file);
+        generated = null;
+
+        long startTime = System.nanoTime();
+        SparseNetwork large = Utility.loadNetwork(file);
+        InProcessSimulation inProcess = new InProcessSimulation(large.numNodes(), large);
+        inProcess.setDestinations(0, blockSize);
+        inProcess.start();
+        double loadTime = (System.nanoTime() - startTime) / 1e6;
+
+        startTime = System.nanoTime();
+        int steps = inProcess.runToStable();
+        double time = (System.nanoTime() - startTime) / 1e6;
+
+        int blocks = (large.numNodes() + blockSize - 1) / blockSize;
+        System.out.println();
+        System.out.println(String.format("nodes: %d, links: %d, load ms: %.1f", 
+                large.numNodes(), large.numLinks() / 2, loadTime));
+        System.out.println(String.format("%d destinations: %d steps, %.1f ms; all %d blocks about %.1f s",
+                blockSize, steps, time, blocks, time * blocks / 1e3));
+        System.exit(0);
+    }
+
+    /**
+     * compare own distances and next hops of the nodes with the in process nodes
+     * @return true if equal
+     */
+    private static boolean same(Simulation simulation, InProcessSimulation inProcess){
+
+        int numNodes = simulation.getNumNodes();
+        List<DistanceMatrix> DVs = simulation.getNodeDVList();
+        for (int i = 0; i < numNodes; i++){
+            for (int j = 0; j < numNodes; j++){
+                if (DVs.get(i).get(i, j) != inProcess.getDistance(i, j)
+                        || simulation.getNextHop(i, j) != inProcess.getNextHop(i, j)){
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,85 @@
+package test;
+
+import common.DistanceMatrix;
+import common.MessageCodec;
+import common.SparseNetwork;
+import common.Utility;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import master.Simulation;
+
+/**
+ * CPU time of the steps on a converged network and of the steps until it converges again
+ * after a single link cost change, with nodes that relax all neighbor entries in each update (before)
+ * and nodes that relax only the entries that changed since their last update (after)
+ *
+ * usage: IncrementalBenchmark [nodes] [steps]
+ */
+public class IncrementalBenchmark {
+
+    public static void main(String[] args){
+
+        int numNodes = args.length > 0 ? Integer.parseInt(args[0]) : 150;
+        int steps = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        SparseNetwork network = Topologies.random(numNodes, numNodes, 10, 42);
+
+        //a cheaper link moves routes through it
+        int link = 0;
+        while (network.cost(link) < 2){
+            link++;
+        }
+        int changedFrom = 0;
+        while (network.offset(changedFrom + 1) <= link){
+            changedFrom++;
+        }
+        int changedTo = network.target(link);
+        int changedCost = network.cost(link) / 2;
+
+        System.out.println(String.format("nodes: %d, links: %d, link %d-%d cost %d -> %d",
+                numNodes, network.numLinks() / 2, changedFrom + 1, changedTo + 1, network.cost(link), changedCost));
+        System.out.println(String.format("%-12s %18s %14s %18s", "mode", "converged ms/step", "change steps", "change CPU ms"));
+
+        List<DistanceMatrix> full = null;
+        for (boolean incremental : new boolean[]{false, true}){
+
+            Simulation simulation = new Simulation(numNodes, network, true, MessageCodec.forName("binary"));
+            simulation.setNonBlocking(true);
+            simulation.setIncrementalUpdates(incremental);
+            simulation.start();
+            PushBenchmark.runToStable(simulation);
+
+            //converged, nothing changes
+            long startTime = cpuTime();
+            for (int i = 0; i < steps; i++){
+                simulation.runOneStep();
+            }
+            double converged = (cpuTime() - startTime) / 1e6 / steps;
+
+            startTime = cpuTime();
+            simulation.changeCost(changedFrom, changedTo, changedCost);
+            int changeSteps = PushBenchmark.runToStable(simulation);
+            double change = (cpuTime() - startTime) / 1e6;
+
+            List<DistanceMatrix> DVs = simulation.getNodeDVList();
+            simulation.shutdown();
+
+            String mode = incremental ? "incremental" : "full";
+            if (full != null && !Utility.equals(full, DVs)){
+                mode += " (different DVs)";
+            }
+            full = DVs;
+
+            System.out.println(String.format("%-12s %18.3f %14d %18.1f", mode, converged, changeSteps, change));
+        }
+        System.exit(0);
+    }
+
+    /**
+     * CPU time of all threads of the process
+     * @return time (ns)
+     */
+    private static long cpuTime(){
+        return ((com.sun.management.OperatingSystemMXBean)ManagementFactory.getOperatingSystemMXBean()).getProcessCpuTime();
+    }
+}
@@ -0,0 +1,98 @@
+package test;
+
+import common.Configuration;
+import common.MessageCodec;
+import common.NodeInfo;
+import common.SparseNetwork;
+import common.Transport;
+import common.Utility;
+import java.util.ArrayList;
+import java.util.List;
+import node.NodeServer;
+
+/**
+ * memory of the node tables with the full DV table (before)
+ * and with own distances plus the distances of neighbors (lean, after)
+ * the nodes of a sample are created, the fleet is the sample size times the number of nodes
+ *
+ * usage: LeanMemoryBenchmark [sample size]
+ */
+public class LeanMemoryBenchmark {
+
+    public static void main(String[] args){
+
+        int sample = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+
+        System.out.println(String.format("%8s %8s %8s %16s %16s", "nodes", "degree", "mode", "node KB", "fleet MB"));
+
+        for (int numNodes : new int[]{1000, 5000}){
+
+            //average degree 4
+            SparseNetwork network = Topologies.random(numNodes, numNodes, 10, numNodes);
+            int infinity = Utility.infinity(numNodes, network);
+            double degree = (double)network.numLinks() / numNodes;
+
+            for (boolean lean : new boolean[]{false, true}){
+
+                String mode = lean ? "lean" : "full";
+
+                //full tables: DV, routing table and neighbor DVs (int), entry versions (long)
+                double estimate = (4.0 * (2 + degree) + 8) * numNodes * numNodes;
+                if (!lean && estimate > Runtime.getRuntime().maxMemory() / 2){
+                    System.out.println(String.format("%8d %8.1f %8s %16.0f %16.0f  (estimated, does not fit in heap)",
+                            numNodes, degree, mode, estimate / 1e3, estimate * numNodes / 1e6));
+                    continue;
+                }
+
+                int count = (int)Math.max(1, Math.min(sample, Runtime.getRuntime().maxMemory() / 2 / estimate));
+                if (lean){
+                    count = Math.min(numNodes, sample * 10);
+                }
+
+                long before = usedMemory();
+                List<NodeServer> nodes = create(network, numNodes, infinity, count, lean);
+                long used = usedMemory() - before;
+
+                double perNode = (double)used / nodes.size();
+                System.out.println(String.format("%8d %8.1f %8s %16.1f %16.1f  (%d nodes created)",
+                        numNodes, degree, mode, perNode / 1e3, perNode * numNodes / 1e6, nodes.size()));
+
+                for (NodeServer node : nodes){
+                    node.shutdown();
+                }
+                nodes.clear();
+            }
+        }
+    }
+
+    /**
+     * create the first nodes of network, they are not started
+     * @return nodes
+     */
+    private static List<NodeServer> create(SparseNetwork network, int numNodes, int infinity, int count, boolean lean){
+
+        List<NodeInfo> nodeInfoList = new ArrayList<>();
+        for (int i = 0; i < numNodes; i++){
+            nodeInfoList.add(new NodeInfo(i + 1, Configuration.NODE_ADDRESS, Configuration.BASIC_PORT + i + 1));
+        }
+
+        List<NodeServer> nodes = new ArrayList<>();
+        for (int i = 0; i < count; i++){
+            List<NodeInfo> neighbors = new ArrayList<>();
+            for (int link = network.offset(i); link < network.offset(i + 1); link++){
+                neighbors.add(nodeInfoList.get(network.target(link)));
+            }
+            nodes.add(new NodeServer(numNodes, infinity, nodeInfoList.get(i), network, neighbors,
+                    Transport.create(true, MessageCodec.forName("binary")), lean));
+        }
+        return nodes;
+    }
+
+    private static long usedMemory(){
+        Runtime runtime = Runtime.getRuntime();
+        for (int k = 0; k < 3; k++){
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
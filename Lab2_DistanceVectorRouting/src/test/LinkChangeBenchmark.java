@@ -0,0 +1,106 @@
+package test;
+
+import common.DistanceMatrix;
+import common.MessageCodec;
+import common.ShortestPaths;
+import common.SparseNetwork;
+import java.util.Random;
+import master.Simulation;
+
+/**
+ * reconvergence after a link cost increase and after a link failure, with the network sent to all nodes
+ * and all nodes starting over (reset), with the network sent to all nodes that keep their distances
+ * and poison reverse (keep), and with the change sent to the two ends of the link only (local),
+ * in lock-step and asynchronous mode: nodes told, steps, time, DV messages between nodes and DV updates
+ * per change, own distances that are not shortest paths after all changes
+ *
+ * usage: LinkChangeBenchmark [nodes] [changed links]
+ */
+public class LinkChangeBenchmark {
+
+    public static void main(String[] args){
+
+        int numNodes = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        int changes = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        //few extra links, routes back through the changed link are likely
+        SparseNetwork network = Topologies.random(numNodes, numNodes / 4, 10, 7);
+
+        //links to change
+        Random random = new Random(7);
+        int[][] links = new int[changes][];
+        for (int c = 0; c < changes; c++){
+            int from = random.nextInt(numNodes);
+            int link = network.offset(from) + random.nextInt(network.degree(from));
+            links[c] = new int[]{from, network.target(link), network.cost(link)};
+        }
+
+        System.out.println(String.format("nodes: %d, links: %d, changed links: %d",
+                numNodes, network.numLinks() / 2, changes));
+        System.out.println(String.format("%-10s %-8s %-10s %8s %8s %10s %12s %12s %8s",
+                "mode", "change", "schedule", "told", "steps", "ms", "DV messages", "updates", "wrong"));
+
+        for (boolean async : new boolean[]{false, true}){
+        for (String mode : new String[]{"reset", "keep", "local"}){
+
+            Simulation simulation = new Simulation(numNodes, network, true, MessageCodec.forName("binary"));
+            simulation.setNonBlocking(true);
+            simulation.setPushUpdates(async);
+            simulation.setKeepDistances(mode.equals("keep"));
+            simulation.setPoisonReverse(!mode.equals("reset"));
+            simulation.setLocalizedChanges(mode.equals("local"));
+            simulation.setConvergenceDetection(true);
+            simulation.start();
+            runToStable(simulation);
+
+            for (String change : new String[]{"increase", "failure"}){
+
+                int steps = 0;
+                long time = 0;
+                long messages = 0;
+                long updates = 0;
+                int wrong = 0;
+                for (int[] link : links){
+
+                    long startMessages = simulation.getDVMessages();
+                    long startUpdates = simulation.getUpdates();
+                    long startTime = System.nanoTime();
+                    simulation.changeCost(link[0], link[1], change.equals("failure") ? 0 : link[2] + 20);
+                    steps += runToStable(simulation);
+                    time += System.nanoTime() - startTime;
+                    messages += simulation.getDVMessages() - startMessages;
+                    updates += simulation.getUpdates() - startUpdates;
+
+                    DistanceMatrix distances = ShortestPaths.parallel().compute(numNodes,
+                            simulation.getNetwork(), simulation.getInfinity());
+                    wrong += ShortestPaths.verify(simulation.getNodeDVList(), distances);
+
+                    //back to the old cost, not measured
+                    simulation.changeCost(link[0], link[1], link[2]);
+                    runToStable(simulation);
+                }
+
+                System.out.println(String.format("%-10s %-8s %-10s %8d %8.1f %10.1f %12.1f %12.1f %8d",
+                        mode, change, async ? "async" : "lock-step", mode.equals("local") ? 2 : numNodes,
+                        (double)steps / changes, time / 1e6 / changes, (double)messages / changes,
+                        (double)updates / changes, wrong));
+            }
+            simulation.shutdown();
+        }
+        }
+        System.exit(0);
+    }
+
+    /**
+     * run steps until no node changed
+     * @return steps
+     */
+    private static int runToStable(Simulation simulation){
+        int steps = 0;
+        do {
+            simulation.runOneStep();
+            steps++;
+        } while (!simulation.isStable());
+        return steps;
+    }
+}
@@ -0,0 +1,159 @@
+package test;
+
+import common.DistanceMatrix;
+import common.SparseNetwork;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * time of one DV update of a node with int[][] matrices (before)
+ * and with flat DistanceMatrix rows (after)
+ *
+ * usage: MatrixKernelBenchmark [largest number of nodes]
+ */
+public class MatrixKernelBenchmark {
+
+    private static final int INFINITY = 1 << 20;
+
+    public static void main(String[] args){
+
+        int largest = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+
+        System.out.println(String.format("%8s %10s %14s %14s %8s",
+                "nodes", "neighbors", "int[][] us", "flat us", "speedup"));
+
+        for (int numNodes = 10; numNodes <= largest; numNodes = numNodes < 100 ? numNodes * 10 : numNodes * 2){
+
+            SparseNetwork network = Topologies.random(numNodes, numNodes, 10, numNodes);
+
+            //neighbors of node 0 with converged-looking DVs
+            List<Integer> neighbors = new ArrayList<>();
+            for (int j = 1; j < numNodes; j++){
+                if (network.get(0, j) != 0){
+                    neighbors.add(j);
+                }
+            }
+            List<DistanceMatrix> flatNeighbors = new ArrayList<>();
+            List<int[][]> arrayNeighbors = new ArrayList<>();
+            for (int neighbor : neighbors){
+                DistanceMatrix DV = new DistanceMatrix(numNodes);
+                int[][] arrayDV = new int[numNodes][numNodes];
+                for (int i = 0; i < numNodes; i++){
+                    for (int j = 0; j < numNodes; j++){
+                        int value = (i * 31 + j * 17 + neighbor) % 97;
+                        DV.set(i, j, value);
+                        arrayDV[i][j] = value;
+                    }
+                }
+                flatNeighbors.add(DV);
+                arrayNeighbors.add(arrayDV);
+            }
+            DistanceMatrix costs = network.toMatrix();
+            int[][] arrayNetwork = new int[numNodes][numNodes];
+            for (int i = 0; i < numNodes; i++){
+                arrayNetwork[i] = costs.row(i).toArray();
+            }
+
+            //about 50M entry updates per measurement
+            int iterations = Math.max(3, (int)(5e7 / ((long)numNodes * numNodes * Math.max(1, neighbors.size()))));
+
+            double arrays = 0;
+            double flat = 0;
+            for (int repeat = 0; repeat < 3; repeat++){
+                //first repeat warms up
+                arrays = timeArrays(numNodes, arrayNetwork, neighbors, arrayNeighbors, iterations);
+                flat = timeFlat(numNodes, network, neighbors, flatNeighbors, iterations);
+            }
+
+            System.out.println(String.format("%8d %10d %14.1f %14.1f %8.2f",
+                    numNodes, neighbors.size(), arrays / 1e3, flat / 1e3, arrays / flat));
+        }
+    }
+
+    /**
+     * the update of NodeServer with int[][] matrices
+     * @return ns per update
+     */
+    private static double timeArrays(int numNodes, int[][] network, List<Integer> neighbors,
+            List<int[][]> DVNeighbors, int iterations){
+
+        int[][] DV = new int[numNodes][numNodes];
+        int check = 0;
+
+        long startTime = System.nanoTime();
+        for (int k = 0; k < iterations; k++){
+            for (int[] row : DV){
+                Arrays.fill(row, INFINITY);
+            }
+            for (int fromIndex = 0; fromIndex < numNodes; fromIndex++){
+                for (int toNode = 0; toNode < numNodes; toNode++){
+                    if (fromIndex == toNode){
+                        DV[fromIndex][toNode] = 0;
+                    }else if (fromIndex == 0){
+                        for (int i = 0; i < neighbors.size(); i++){
+                            int neighborIndex = neighbors.get(i);
+                            DV[fromIndex][toNode] = Math.min(DV[fromIndex][toNode],
+                                    network[fromIndex][neighborIndex] + DVNeighbors.get(i)[neighborIndex][toNode]);
+                        }
+                    }else{
+                        for (int i = 0; i < neighbors.size(); i++){
+                            DV[fromIndex][toNode] = Math.min(DV[fromIndex][toNode],
+                                    DVNeighbors.get(i)[fromIndex][toNode]);
+                        }
+                    }
+                }
+            }
+            check += DV[numNodes - 1][0];
+        }
+        long time = System.nanoTime() - startTime;
+
+        if (check == -1){
+            System.out.println();
+        }
+        return (double)time / iterations;
+    }
+
+    /**
+     * the update of NodeServer with DistanceMatrix rows
+     * @return ns per update
+     */
+    private static double timeFlat(int numNodes, SparseNetwork network, List<Integer> neighbors,
+            List<DistanceMatrix> DVNeighbors, int iterations){
+
+        DistanceMatrix matrix = new DistanceMatrix(numNodes);
+        int[] DV = matrix.values();
+        int check = 0;
+
+        long startTime = System.nanoTime();
+        for (int k = 0; k < iterations; k++){
+            matrix.fill(INFINITY);
+            for (int fromIndex = 0; fromIndex < numNodes; fromIndex++){
+                int row = matrix.offset(fromIndex);
+                for (int i = 0; i < neighbors.size(); i++){
+                    int[] neighborDV = DVNeighbors.get(i).values();
+                    if (fromIndex == 0){
+                        int neighborIndex = neighbors.get(i);
+                        int cost = network.get(fromIndex, neighborIndex);
+                        int neighborRow = matrix.offset(neighborIndex);
+                        for (int toNode = 0; toNode < numNodes; toNode++){
+                            DV[row + toNode] = Math.min(DV[row + toNode], cost + neighborDV[neighborRow + toNode]);
+                        }
+                    }else{
+                        for (int toNode = 0; toNode < numNodes; toNode++){
+                            DV[row + toNode] = Math.min(DV[row + toNode], neighborDV[row + toNode]);
+                        }
+                    }
+                }
+                DV[row + fromIndex] = 0;
+            }
+            check += matrix.get(numNodes - 1, 0);
+        }
+        long time = System.nanoTime() - startTime;
+
+        if (check == -1){
+            System.out.println();
+        }
+        return (double)time / iterations;
+    }
+}
@@ -0,0 +1,110 @@
+package test;
+
+import common.MinPlus;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * entries relaxed per second by the min-plus kernel of a DV update, entry by entry (scalar, before)
+ * and in blocks tested without branches (after), at several numbers of nodes and block widths;
+ * converged: no neighbor gives a shorter distance, like the steps after convergence,
+ * few: one entry in 1000 gets shorter, like the steps after a link change,
+ * many: one entry in 10 gets shorter, like the first steps after a reset
+ *
+ * usage: MinPlusBenchmark [largest number of nodes]
+ */
+public class MinPlusBenchmark {
+
+    private static final int INFINITY = 1 << 20;
+
+    private static final int NEIGHBORS = 4;
+
+    private static final int[] WIDTHS = {1, 16, 64, 256, 1024};
+
+    public static void main(String[] args){
+
+        int largest = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+
+        StringBuilder header = new StringBuilder(String.format("%8s %10s", "nodes", "DV"));
+        for (int width : WIDTHS){
+            header.append(String.format(" %12s", MinPlus.of(width).toString().replace("blocked ", "")));
+        }
+        System.out.println("M entries/s, " + NEIGHBORS + " neighbors");
+        System.out.println(header);
+
+        for (int numNodes = 100; numNodes <= largest; numNodes *= numNodes < 1000 ? 10 : 2){
+            for (int every : new int[]{0, 1000, 10}){
+
+                Random random = new Random(numNodes);
+                int entries = numNodes * numNodes;
+
+                //own DV and neighbor DVs, the own DV is the minimum of the neighbor DVs
+                int[] start = new int[entries];
+                int[][] neighborDVs = new int[NEIGHBORS][entries];
+                Arrays.fill(start, INFINITY);
+                for (int[] neighborDV : neighborDVs){
+                    for (int k = 0; k < entries; k++){
+                        neighborDV[k] = 1 + random.nextInt(1000);
+                        start[k] = Math.min(start[k], neighborDV[k]);
+                    }
+                }
+                if (every > 0){
+                    for (int k = 0; k < entries; k += every){
+                        start[k] += 1 + random.nextInt(100);
+                    }
+                }
+
+                //about 100M entries per measurement
+                int iterations = Math.max(3, (int)(1e8 / ((long)entries * NEIGHBORS)));
+
+                int[] expected = null;
+                String changes = every == 0 ? "converged" : every == 1000 ? "few" : "many";
+                StringBuilder line = new StringBuilder(String.format("%8d %10s", numNodes, changes));
+                for (int width : WIDTHS){
+                    MinPlus kernel = MinPlus.of(width);
+                    int[] DV = start.clone();
+                    double time = 0;
+                    for (int repeat = 0; repeat < 3; repeat++){
+                        //first repeat warms up
+                        time = time(kernel, start, DV, neighborDVs, iterations);
+                    }
+                    if (expected == null){
+                        expected = DV;
+                    }else if (!Arrays.equals(expected, DV)){
+                        throw new IllegalStateException(kernel + " differs from the scalar kernel");
+                    }
+                    line.append(String.format(" %12.0f", (double)entries * NEIGHBORS / time * 1e3));
+                }
+                System.out.println(line);
+            }
+        }
+    }
+
+    /**
+     * relax DV with each neighbor DV, DV starts from start in each iteration
+     * @return ns per update
+     */
+    private static double time(MinPlus kernel, int[] start, int[] DV, int[][] neighborDVs, int iterations){
+
+        long[] versions = new long[DV.length];
+        int[] hops = new int[DV.length];
+        long changed = 0;
+        long time = 0;
+
+        for (int k = 0; k < iterations; k++){
+            System.arraycopy(start, 0, DV, 0, DV.length);
+            long startTime = System.nanoTime();
+            for (int i = 0; i < neighborDVs.length; i++){
+                if (kernel.relax(DV, 0, neighborDVs[i], 0, 0, DV.length, versions, k + 1, hops, i + 1)){
+                    changed++;
+                }
+            }
+            time += System.nanoTime() - startTime;
+        }
+
+        if (changed == -1){
+            System.out.println();
+        }
+        return (double)time / iterations;
+    }
+}
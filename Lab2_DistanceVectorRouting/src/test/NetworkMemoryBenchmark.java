@@ -0,0 +1,79 @@
+package test;
+
+import common.BinaryCodec;
+import common.Message;
+import common.SparseNetwork;
+import common.Utility;
+
+/**
+ * memory of the link costs as a dense matrix (before) and as sparse rows (after),
+ * time to list neighbors, look up costs and encode the costs of REQUEST_CHANGE_COST
+ *
+ * usage: NetworkMemoryBenchmark [nodes] [links]
+ */
+public class NetworkMemoryBenchmark {
+
+    public static void main(String[] args){
+
+        int numNodes = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int numLinks = args.length > 1 ? Integer.parseInt(args[1]) : 500000;
+
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long usedBefore = runtime.totalMemory() - runtime.freeMemory();
+
+        //ring plus extra links
+        long startTime = System.nanoTime();
+        SparseNetwork network = Topologies.random(numNodes, numLinks - numNodes, 1000, 42);
+        long buildTime = System.nanoTime() - startTime;
+
+        System.gc();
+        long used = runtime.totalMemory() - runtime.freeMemory() - usedBefore;
+
+        System.out.println(String.format("nodes: %d, links: %d, average degree: %.1f",
+                numNodes, network.numLinks() / 2, (double)network.numLinks() / numNodes));
+        System.out.println(String.format("dense matrix:      %12.1f MB (not allocated)", 4.0 * numNodes * numNodes / 1e6));
+        System.out.println(String.format("sparse rows:       %12.1f MB (%.1f MB measured)", network.bytes() / 1e6, used / 1e6));
+        System.out.println(String.format("build:             %12.1f ms", buildTime / 1e6));
+
+        //neighbors of every node
+        long sum = 0;
+        startTime = System.nanoTime();
+        for (int i = 0; i < numNodes; i++){
+            for (int link = network.offset(i); link < network.offset(i + 1); link++){
+                sum += network.target(link);
+            }
+        }
+        long neighborTime = System.nanoTime() - startTime;
+        System.out.println(String.format("all neighbors:     %12.1f ms (dense scan reads %d entries)",
+                neighborTime / 1e6, (long)numNodes * numNodes));
+
+        //cost of links and of missing links
+        int lookups = 10000000;
+        startTime = System.nanoTime();
+        for (int k = 0; k < lookups; k++){
+            int i = (int)((k * 2654435761L) % numNodes);
+            sum += network.get(i, k % 2 == 0 ? network.target(network.offset(i)) : (i + 7) % numNodes);
+        }
+        long lookupTime = System.nanoTime() - startTime;
+        System.out.println(String.format("cost lookup:       %12.1f ns", (double)lookupTime / lookups));
+
+        //infinity of the network, one Dijkstra
+        startTime = System.nanoTime();
+        int infinity = Utility.infinity(numNodes, network);
+        System.out.println(String.format("infinity %d:   %12.1f ms", infinity, (System.nanoTime() - startTime) / 1e6));
+
+        //costs sent to every node when a cost changes
+        Message costs = new Message();
+        costs.type = Message.REQUEST_CHANGE_COST;
+        costs.costs = network;
+        startTime = System.nanoTime();
+        int bytes = BinaryCodec.INSTANCE.encode(costs).length;
+        System.out.println(String.format("change cost:       %12.1f MB encoded in %.1f ms",
+                bytes / 1e6, (System.nanoTime() - startTime) / 1e6));
+
+        if (sum == -1){
+            System.out.println();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package test;
+
+import common.DistanceMatrix;
+import common.MessageCodec;
+import common.SparseNetwork;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import master.Simulation;
+
+/**
+ * steps and time until the DVs are stable again after a link cost increase and after a link failure,
+ * with all nodes starting over (reset), with nodes that keep their distances (keep)
+ * and with nodes that keep their distances and poison reverse (poison)
+ * the own distances of the nodes are compared with the reset nodes after each change
+ *
+ * usage: PoisonReverseBenchmark [nodes] [changed links]
+ */
+public class PoisonReverseBenchmark {
+
+    public static void main(String[] args){
+
+        int numNodes = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        int changes = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        //few extra links, routes back through the changed link are likely
+        SparseNetwork network = Topologies.random(numNodes, numNodes / 4, 10, 7);
+
+        //links to change
+        Random random = new Random(7);
+        int[][] links = new int[changes][];
+        for (int c = 0; c < changes; c++){
+            int from = random.nextInt(numNodes);
+            int link = network.offset(from) + random.nextInt(network.degree(from));
+            links[c] = new int[]{from, network.target(link), network.cost(link)};
+        }
+
+        System.out.println(String.format("nodes: %d, links: %d, changed links: %d",
+                numNodes, network.numLinks() / 2, changes));
+        System.out.println(String.format("%-8s %-10s %12s %12s", "mode", "change", "steps", "ms"));
+
+        List<List<DistanceMatrix>> reference = null;
+        for (String mode : new String[]{"reset", "keep", "poison"}){
+
+            Simulation simulation = new Simulation(numNodes, network, true, MessageCodec.forName("binary"));
+            simulation.setNonBlocking(true);
+            simulation.setKeepDistances(!mode.equals("reset"));
+            simulation.setPoisonReverse(mode.equals("poison"));
+            simulation.start();
+            PushBenchmark.runToStable(simulation);
+
+            List<List<DistanceMatrix>> distances = new ArrayList<>();
+            for (String change : new String[]{"increase", "failure"}){
+
+                int steps = 0;
+                long time = 0;
+                for (int[] link : links){
+
+                    long startTime = System.nanoTime();
+                    simulation.changeCost(link[0], link[1], change.equals("failure") ? 0 : link[2] + 20);
+                    steps += PushBenchmark.runToStable(simulation);
+                    time += System.nanoTime() - startTime;
+                    distances.add(ownDistances(simulation.getNodeDVList()));
+
+                    //back to the old cost, not measured
+                    simulation.changeCost(link[0], link[1], link[2]);
+                    PushBenchmark.runToStable(simulation);
+                }
+
+                System.out.println(String.format("%-8s %-10s %12.1f %12.1f",
+                        mode, change, (double)steps / changes, time / 1e6 / changes));
+            }
+            simulation.shutdown();
+
+            if (reference == null){
+                reference = distances;
+            }else if (!reference.equals(distances)){
+                System.out.println(mode + ": own distances differ from reset");
+            }
+        }
+        System.exit(0);
+    }
+
+    /**
+     * own row of each node
+     * @param DVs DV of each node
+     * @return own distances
+     */
+    private static List<DistanceMatrix> ownDistances(List<DistanceMatrix> DVs){
+        List<DistanceMatrix> distances = new ArrayList<>();
+        for (int i = 0; i < DVs.size(); i++){
+            distances.add(DistanceMatrix.of(new int[][]{DVs.get(i).row(i).toArray()}));
+        }
+        return distances;
+    }
+}
@@ -0,0 +1,72 @@
+package test;
+
+import common.DistanceMatrix;
+import common.MessageCodec;
+import common.ShortestPaths;
+import common.SparseNetwork;
+import master.Simulation;
+
+/**
+ * wall-clock time to convergence with master-driven pull rounds
+ * and with triggered updates pushed by the nodes,
+ * own distances that are not shortest paths when stable
+ * 
+ * usage: PushBenchmark [runs]
+ */
+public class PushBenchmark {
+    
+    public static void main(String[] args){
+        
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        int numNodes = Topologies.DEFAULT_NODES;
+        
+        System.out.println(String.format("nodes: %d, runs: %d", numNodes, runs));
+        System.out.println(String.format("%-6s %10s %14s %8s", "mode", "steps", "ms to stable", "wrong"));
+        
+        for (boolean push : new boolean[]{false, true}){
+            
+            long totalTime = 0;
+            int totalSteps = 0;
+            int wrong = 0;
+            
+            for (int run = 0; run < runs; run++){
+                
+                SparseNetwork network = Topologies.random(numNodes, numNodes, 10, run);
+                
+                Simulation simulation = new Simulation(numNodes, network, true, MessageCodec.forName("binary"));
+                simulation.setPushUpdates(push);
+                simulation.start();
+                
+                long startTime = System.nanoTime();
+                int steps = runToStable(simulation);
+                totalTime += System.nanoTime() - startTime;
+                totalSteps += steps;
+                
+                DistanceMatrix distances = ShortestPaths.parallel().compute(numNodes, network, simulation.getInfinity());
+                wrong += ShortestPaths.verify(simulation.getNodeDVList(), distances);
+                
+                simulation.shutdown();
+            }
+            
+            System.out.println(String.format("%-6s %10.1f %14.3f %8d", push ? "push" : "pull", 
+                    (double)totalSteps / runs, totalTime / 1e6 / runs, wrong));
+        }
+        System.exit(0);
+    }
+    
+    /**
+     * run steps until the simulation is stable,
+     * pushing nodes are stable when every advertisement sent was received and no node is busy
+     * @return number of steps
+     */
+    static int runToStable(Simulation simulation){
+        
+        int steps = 0;
+        do {
+            simulation.runOneStep();
+            steps++;
+        } while (!simulation.isStable());
+        
+        return steps;
+    }
+}
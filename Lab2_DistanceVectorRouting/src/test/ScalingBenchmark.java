@@ -0,0 +1,96 @@
+package test;
+
+import common.MessageCodec;
+import common.SparseNetwork;
+import common.Utility;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import master.Simulation;
+
+/**
+ * load time, infinity and convergence of networks from 10 to 10,000 nodes
+ * a network is simulated only if the DV tables of all nodes fit in half of the heap,
+ * every node keeps DVs of n x n entries, so larger networks only report their size
+ * 
+ * usage: ScalingBenchmark [largest number of nodes]
+ */
+public class ScalingBenchmark {
+    
+    public static void main(String[] args) throws IOException {
+        
+        int largest = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        
+        System.out.println(String.format("%8s %8s %10s %10s %12s %8s %12s", 
+                "nodes", "links", "infinity", "load ms", "tables MB", "steps", "ms/step"));
+        
+        for (int numNodes = 10; numNodes <= largest; numNodes *= 10){
+            
+            //network file with realistic link costs
+            SparseNetwork generated = Topologies.random(numNodes, numNodes, 1000, numNodes);
+            File file = File.createTempFile("network", ".txt");
+            file.deleteOnExit();
+            int links = write(generated, file);
+            generated = null;
+            
+            long startTime = System.nanoTime();
+            SparseNetwork network = Utility.loadNetwork(file);
+            int infinity = Utility.infinity(network.numNodes(), network);
+            long loadTime = System.nanoTime() - startTime;
+            
+            double tableBytes = tableBytes(numNodes, 2.0 * links / numNodes);
+            String line = String.format("%8d %8d %10d %10.1f %12.1f", 
+                    numNodes, links, infinity, loadTime / 1e6, tableBytes / 1e6);
+            
+            if (tableBytes > Runtime.getRuntime().maxMemory() / 2){
+                System.out.println(line + String.format(" %8s %12s", "-", "skipped"));
+                continue;
+            }
+            
+            Simulation simulation = new Simulation(numNodes, network, true, MessageCodec.forName("binary"));
+            simulation.setNonBlocking(true);
+            simulation.start();
+            
+            startTime = System.nanoTime();
+            int steps = PushBenchmark.runToStable(simulation);
+            long time = System.nanoTime() - startTime;
+            
+            simulation.shutdown();
+            
+            System.out.println(line + String.format(" %8d %12.3f", steps, time / 1e6 / steps));
+        }
+        System.exit(0);
+    }
+    
+    /**
+     * write network file, one link per line
+     * @return number of links
+     */
+    static int write(SparseNetwork network, File file) throws IOException {
+        
+        int links = 0;
+        try (PrintWriter out = new PrintWriter(file)){
+            for (int i = 0; i < network.numNodes(); i++){
+                for (int link = network.offset(i); link < network.offset(i + 1); link++){
+                    if (network.target(link) > i){
+                        out.println((i + 1) + " " + (network.target(link) + 1) + " " + network.cost(link));
+                        links++;
+                    }
+                }
+            }
+        }
+        return links;
+    }
+    
+    /**
+     * bytes of the DV tables of all nodes
+     * per node: DV, previous DV, routing table and neighbor DVs (int), entry versions (long)
+     * @param numNodes number of nodes
+     * @param degree average number of neighbors
+     * @return bytes
+     */
+    private static double tableBytes(int numNodes, double degree){
+        double entries = (double)numNodes * numNodes;
+        return numNodes * entries * (4 * (3 + degree) + 8);
+    }
+}
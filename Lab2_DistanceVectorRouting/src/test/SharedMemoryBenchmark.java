@@ -0,0 +1,118 @@
+package test;
+
+import common.Configuration;
+import common.DistanceMatrix;
+import common.Message;
+import common.MessageCodec;
+import common.NodeInfo;
+import common.SharedDVRegion;
+import common.SparseNetwork;
+import common.Transport;
+import common.Utility;
+import java.io.File;
+import java.util.ArrayList;
+import master.Simulation;
+import node.NodeServer;
+
+/**
+ * cost of one DV exchange, request over loopback TCP (before) and read of shared memory (after),
+ * and step time with DVs requested and with DVs in shared memory
+ * 
+ * usage: SharedMemoryBenchmark [rounds]
+ */
+public class SharedMemoryBenchmark {
+    
+    public static void main(String[] args) throws Exception {
+        
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        int numNodes = Topologies.DEFAULT_NODES;
+        SparseNetwork network = Topologies.random(numNodes, numNodes, 10, 42);
+        
+        System.out.println(String.format("nodes: %d, rounds: %d", numNodes, rounds));
+        System.out.println(String.format("DV request over TCP:     %10.0f ns", requestTime(numNodes, network, rounds * 10)));
+        System.out.println(String.format("DV read of memory:       %10.0f ns", readTime(numNodes, rounds * 100)));
+        
+        System.out.println(String.format("step, DVs requested:     %10.3f ms", stepTime(numNodes, network, false, null, rounds)));
+        System.out.println(String.format("step, shared memory:     %10.3f ms", stepTime(numNodes, network, true, null, rounds)));
+        
+        File file = File.createTempFile("dvr", ".shm");
+        file.deleteOnExit();
+        System.out.println(String.format("step, mapped file:       %10.3f ms", stepTime(numNodes, network, true, file, rounds)));
+        System.exit(0);
+    }
+    
+    /**
+     * time of a full DV request to a node
+     * @return ns per request
+     */
+    private static double requestTime(int numNodes, SparseNetwork network, int count) throws Exception {
+        
+        NodeInfo info = new NodeInfo(1, Configuration.NODE_ADDRESS, Configuration.BASIC_PORT + 1);
+        NodeServer server = new NodeServer(numNodes, info, network, new ArrayList<NodeInfo>());
+        server.start();
+        Thread.sleep(1000);
+        
+        Transport transport = Transport.create(true, MessageCodec.forName("binary"));
+        long startTime = 0;
+        for (int k = -count / 10; k < count; k++){
+            if (k == 0){
+                startTime = System.nanoTime();
+            }
+            Message message = new Message();
+            message.type = Message.REQUEST_DV;
+            transport.request(info, message);
+        }
+        long time = System.nanoTime() - startTime;
+        
+        transport.close();
+        server.shutdown();
+        server.join(1000);
+        return (double)time / count;
+    }
+    
+    /**
+     * time of a DV read of shared memory
+     * @return ns per read
+     */
+    private static double readTime(int numNodes, int count){
+        
+        SharedDVRegion region = SharedDVRegion.allocate(numNodes, numNodes);
+        DistanceMatrix DV = Utility.createMatrix(numNodes, Configuration.MIN_INFINITY);
+        region.write(0, 1, 1, DV);
+        
+        long startTime = 0;
+        for (int k = -count / 10; k < count; k++){
+            if (k == 0){
+                startTime = System.nanoTime();
+            }
+            region.read(0, 2, DV);
+        }
+        return (double)(System.nanoTime() - startTime) / count;
+    }
+    
+    /**
+     * average step time
+     * @return ms per step
+     */
+    private static double stepTime(int numNodes, SparseNetwork network, boolean sharedMemory, File file, int rounds){
+        
+        Simulation simulation = new Simulation(numNodes, network, true, MessageCodec.forName("binary"));
+        simulation.setSharedMemory(sharedMemory, file);
+        simulation.start();
+        
+        //warm up
+        for (int i = 0; i < rounds / 10; i++){
+            simulation.runOneStep();
+        }
+        
+        long startTime = System.nanoTime();
+        for (int i = 0; i < rounds; i++){
+            simulation.runOneStep();
+        }
+        long endTime = System.nanoTime();
+        
+        simulation.shutdown();
+        
+        return (endTime - startTime) / 1e6 / rounds;
+    }
+}
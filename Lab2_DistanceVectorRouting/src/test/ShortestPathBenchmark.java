@@ -0,0 +1,95 @@
+package test;
+
+import common.DistanceMatrix;
+import common.MessageCodec;
+import common.ShortestPaths;
+import common.SparseNetwork;
+import common.Utility;
+import java.util.concurrent.ForkJoinPool;
+import master.InProcessSimulation;
+import master.Simulation;
+
+/**
+ * time of all shortest paths of a network with plain Floyd-Warshall (before)
+ * and blocked Floyd-Warshall on one thread and on a pool (after), at several numbers of nodes;
+ * then the converged DVs of lean nodes and of the in process nodes are verified with them
+ *
+ * usage: ShortestPathBenchmark [largest number of nodes] [threads] [simulated nodes]
+ */
+public class ShortestPathBenchmark {
+
+    public static void main(String[] args){
+
+        int largest = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int simulated = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        ShortestPaths blocked = ShortestPaths.of(ShortestPaths.DEFAULT_TILE, null);
+        ShortestPaths parallel = ShortestPaths.of(ShortestPaths.DEFAULT_TILE, pool);
+
+        System.out.println(String.format("%8s %12s %12s %12s", "nodes", "plain ms", "blocked ms", threads + " threads ms"));
+
+        for (int numNodes = 250; numNodes <= largest; numNodes *= 2){
+
+            SparseNetwork network = Topologies.random(numNodes, numNodes, 1000, numNodes);
+            int infinity = Utility.infinity(numNodes, network);
+
+            //plain Floyd-Warshall takes too long past 1000 nodes
+            DistanceMatrix expected = null;
+            String plainTime = "-";
+            if (numNodes <= 1000){
+                long startTime = System.nanoTime();
+                expected = ShortestPaths.floydWarshall(numNodes, network, infinity);
+                plainTime = String.format("%.1f", (System.nanoTime() - startTime) / 1e6);
+            }
+
+            double[] times = new double[2];
+            ShortestPaths[] kernels = {blocked, parallel};
+            for (int k = 0; k < kernels.length; k++){
+                //the first run warms up
+                for (int repeat = 0; repeat < 2; repeat++){
+                    long startTime = System.nanoTime();
+                    DistanceMatrix distances = kernels[k].compute(numNodes, network, infinity);
+                    times[k] = (System.nanoTime() - startTime) / 1e6;
+                    if (expected == null){
+                        expected = distances;
+                    }else if (!expected.contentEquals(distances)){
+                        throw new IllegalStateException(kernels[k] + " differs from Floyd-Warshall");
+                    }
+                }
+            }
+
+            System.out.println(String.format("%8d %12s %12.1f %12.1f", numNodes, plainTime, times[0], times[1]));
+        }
+
+        //the oracle verifies converged DVs
+        SparseNetwork network = Topologies.random(simulated, simulated, 10, 5);
+        int infinity = Utility.infinity(simulated, network);
+        long startTime = System.nanoTime();
+        DistanceMatrix distances = parallel.compute(simulated, network, infinity);
+        double oracleTime = (System.nanoTime() - startTime) / 1e6;
+
+        Simulation simulation = new Simulation(simulated, network, true, MessageCodec.forName("binary"));
+        simulation.setNonBlocking(true);
+        simulation.setLeanNodes(true);
+        simulation.start();
+        startTime = System.nanoTime();
+        PushBenchmark.runToStable(simulation);
+        double simulationTime = (System.nanoTime() - startTime) / 1e6;
+        int wrong = ShortestPaths.verify(simulation.getNodeDVList(), distances);
+        simulation.shutdown();
+
+        InProcessSimulation inProcess = new InProcessSimulation(simulated, network);
+        inProcess.start();
+        startTime = System.nanoTime();
+        inProcess.runToStable();
+        double inProcessTime = (System.nanoTime() - startTime) / 1e6;
+        int inProcessWrong = ShortestPaths.verify(inProcess.getNodeDVList(), distances);
+
+        System.out.println();
+        System.out.println(String.format("%d nodes: oracle %.1f ms, lean nodes %.1f ms (%d wrong), in process %.1f ms (%d wrong)",
+                simulated, oracleTime, simulationTime, wrong, inProcessTime, inProcessWrong));
+        System.exit(0);
+    }
+}
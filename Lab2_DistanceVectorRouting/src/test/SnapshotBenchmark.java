@@ -0,0 +1,145 @@
+package test;
+
+import common.BinaryCodec;
+import common.Configuration;
+import common.Message;
+import common.MessageCodec;
+import common.NodeInfo;
+import common.SparseNetwork;
+import common.Transport;
+import common.Utility;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import node.NodeServer;
+
+/**
+ * DV reads per second while the node recalculates at rising rates,
+ * readers encode the DV like a REQUEST_DV reply,
+ * with the node locked while the DV is encoded (before) and from the published snapshot (after);
+ * reads per second of reader CPU time leave out the time the writer takes from the readers,
+ * on a single core that is all the readers lose to the updates without contention
+ *
+ * usage: SnapshotBenchmark [readers] [seconds]
+ */
+public class SnapshotBenchmark {
+
+    public static void main(String[] args) throws Exception {
+
+        int readers = args.length > 0 ? Integer.parseInt(args[0]) : 2;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        int numNodes = 200;
+
+        SparseNetwork network = Topologies.random(numNodes, numNodes, 10, 42);
+        SparseNetwork changed = network.withCost(0, network.target(network.offset(0)), 100);
+        int infinity = Math.max(Utility.infinity(numNodes, network), Utility.infinity(numNodes, changed));
+
+        List<NodeInfo> nodeInfoList = new ArrayList<>();
+        for (int i = 0; i < numNodes; i++){
+            nodeInfoList.add(new NodeInfo(i + 1, Configuration.NODE_ADDRESS, Configuration.BASIC_PORT + i + 1));
+        }
+        List<NodeInfo> neighbors = new ArrayList<>();
+        for (int link = network.offset(0); link < network.offset(1); link++){
+            neighbors.add(nodeInfoList.get(network.target(link)));
+        }
+        NodeServer server = new NodeServer(numNodes, infinity, nodeInfoList.get(0), network, neighbors,
+                Transport.create(true, MessageCodec.forName("binary")));
+
+        System.out.println(String.format("nodes: %d, readers: %d", numNodes, readers));
+        System.out.println(String.format("%14s %14s %16s %14s %16s", "updates/s", "locked reads/s", "snapshot reads/s",
+                "locked reads/", "snapshot reads/"));
+        System.out.println(String.format("%14s %14s %16s %14s %16s", "", "", "", "CPU s", "CPU s"));
+
+        //warm up
+        run(server, network, changed, readers, 1, 0, true);
+        run(server, network, changed, readers, 1, 0, false);
+
+        //0 for no updates, -1 for as many as possible
+        for (int rate : new int[]{0, 100, 1000, -1}){
+            double[] locked = run(server, network, changed, readers, seconds, rate, true);
+            double[] snapshot = run(server, network, changed, readers, seconds, rate, false);
+            System.out.println(String.format("%14s %14.0f %16.0f %14.0f %16.0f    (%.0f / %.0f updates/s)",
+                    rate < 0 ? "max" : Integer.toString(rate), locked[0], snapshot[0], locked[2], snapshot[2], 
+                    locked[1], snapshot[1]));
+        }
+        server.shutdown();
+    }
+
+    /**
+     * read and encode the DV while one thread recalculates
+     * @param rate updates per second, 0 none, -1 as many as possible
+     * @param locked lock the node while the DV is encoded
+     * @return reads per second of all readers, updates per second, reads per second of reader CPU time
+     */
+    private static double[] run(final NodeServer server, final SparseNetwork network, final SparseNetwork changed,
+            int readers, int seconds, final int rate, final boolean locked) throws InterruptedException {
+
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final AtomicLong reads = new AtomicLong();
+        final AtomicLong updates = new AtomicLong();
+        final AtomicLong readTime = new AtomicLong();
+        final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+        Thread writer = new Thread(() -> {
+            boolean flip = false;
+            long next = System.nanoTime();
+            while (running.get() && rate != 0){
+                server.calculate(flip ? changed : network);
+                flip = !flip;
+                updates.incrementAndGet();
+                if (rate > 0){
+                    next += 1000000000L / rate;
+                    long wait = next - System.nanoTime();
+                    if (wait > 0){
+                        try {
+                            Thread.sleep(wait / 1000000, (int)(wait % 1000000));
+                        } catch (InterruptedException ex) {
+                            return;
+                        }
+                    }
+                }
+            }
+        });
+
+        List<Thread> readerThreads = new ArrayList<>();
+        for (int r = 0; r < readers; r++){
+            readerThreads.add(new Thread(() -> {
+                long count = 0;
+                long startTime = threads.getCurrentThreadCpuTime();
+                while (running.get()){
+                    Message reply = new Message();
+                    reply.type = Message.REQUEST_DV;
+                    if (locked){
+                        synchronized (server){
+                            reply.DV = server.getDV();
+                            BinaryCodec.INSTANCE.encode(reply);
+                        }
+                    }else{
+                        reply.DV = server.getDV();
+                        BinaryCodec.INSTANCE.encode(reply);
+                    }
+                    count++;
+                }
+                reads.addAndGet(count);
+                readTime.addAndGet(threads.getCurrentThreadCpuTime() - startTime);
+            }));
+        }
+
+        writer.start();
+        for (Thread thread : readerThreads){
+            thread.start();
+        }
+        Thread.sleep(seconds * 1000L);
+        running.set(false);
+        writer.join();
+        for (Thread thread : readerThreads){
+            thread.join();
+        }
+
+        return new double[]{reads.get() / (double)seconds, updates.get() / (double)seconds, 
+            reads.get() / (readTime.get() / 1e9)};
+    }
+}
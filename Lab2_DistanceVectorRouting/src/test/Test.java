@@ -1,10 +1,10 @@
 package test;
 
 import common.Message;
+import common.MessageCodec;
+import common.NodeInfo;
+import common.Transport;
 import common.Utility;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.net.Socket;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import master.MasterFrame;
@@ -16,23 +16,18 @@ public class Test {
     
     public static void main(String[] args){
         
+        Transport transport = Transport.create(false, MessageCodec.forName("binary"));
+        
         for (int i = 0; i < 20; i++){
             
             try {
 
-                Socket clientSocket = new Socket("127.0.0.1", 1235);
-                ObjectOutputStream toServer = new ObjectOutputStream(clientSocket.getOutputStream());    
-                ObjectInputStream fromClient = new ObjectInputStream(clientSocket.getInputStream()); 
-
                 //send request
                 Message request = new Message();
                 request.type = Message.REQUEST_UPDATE_DV;
-                toServer.writeObject(request);
-
+                
                 //read message
-//                Message message = (Message)fromClient.readObject();
-
-                clientSocket.close();
+                Message message = transport.request(new NodeInfo(1, "127.0.0.1", 1235), request);
 
 //                System.out.println(Utility.DV2String(5, message.DV));
 
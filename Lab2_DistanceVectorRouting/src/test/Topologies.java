@@ -0,0 +1,45 @@
+package test;
+
+import common.SparseNetwork;
+import java.util.Random;
+
+/**
+ * topologies for the benchmarks
+ */
+public class Topologies {
+    
+    /**
+     * number of nodes of the benchmarks, the size of the original lab network
+     */
+    public static final int DEFAULT_NODES = 6;
+    
+    /**
+     * random connected network
+     * a ring through all nodes plus random extra links
+     * @param numNodes number of nodes
+     * @param extraLinks number of extra links
+     * @param maxCost maximum link cost
+     * @param seed random seed
+     * @return links of network
+     */
+    public static SparseNetwork random(int numNodes, int extraLinks, int maxCost, long seed){
+        
+        SparseNetwork.Builder network = new SparseNetwork.Builder();
+        Random random = new Random(seed);
+        
+        //ring
+        for (int i = 0; i < numNodes && numNodes > 1; i++){
+            network.link(i, (i + 1) % numNodes, 1 + random.nextInt(maxCost));
+        }
+        
+        //extra links
+        for (int k = 0; k < extraLinks; k++){
+            int from = random.nextInt(numNodes);
+            int to = random.nextInt(numNodes);
+            if (from != to){
+                network.link(from, to, 1 + random.nextInt(maxCost));
+            }
+        }
+        return network.build(numNodes);
+    }
+}